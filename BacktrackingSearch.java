@@ -0,0 +1,250 @@
+/**
+ * This class implements a depth first search engine of the Sudoku Game. It is
+ * an alternative to the DancingLinks engine when the rules reach a fixed point
+ * without solving the puzzle.
+ *
+ * At each level the search picks the unassigned cell with the fewest candidates
+ * (minimum remaining values) and tries its digits in increasing order. When no
+ * cell has a single candidate, a digit that has a single place left in a unit
+ * (hidden single) is tried alone instead, which prunes the search like the
+ * column choice of the DancingLinks engine. Assigning a digit removes it from
+ * the peers of the cell; every mask that is changed is pushed on an undo stack
+ * so it can be restored when the search backtracks. The popcount and the lowest
+ * digit of the masks use Integer.bitCount() and
+ * Integer.numberOfTrailingZeros(), which the JIT turns into single instructions
+ * for masks of any grid size, and all the state is held in arrays allocated
+ * once in the constructor, so a solve does not allocate anything.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class BacktrackingSearch implements SearchEngine {
+
+	private static final int NONE = -1;     // no hidden single in the grid
+	private static final int CONFLICT = -2; // a digit has no place left in a unit
+
+	private final SudokuTopology topology; // layout of the grid
+	private final int[][] peer;            // peers of each cell (row, column and box)
+	private final int[][] units;           // cells of each unit
+	private final int allDigits;           // mask with every digit of the grid
+	private final int[] cand;              // working candidate masks
+	private final int[] first;             // first solution found by the search
+	private final boolean[] assigned;      // cells already chosen by the search
+	private final int[] undoCell;          // cells changed, in order
+	private final int[] undoMask;          // masks of those cells before the change
+	private int top;                       // size of the undo stack
+	private long nodeCount;                // number of nodes visited by the last search
+	private long nodeLimit;                // number of nodes after which the search gives up
+	private int limit;                     // number of solutions after which the search stops
+	private int solutions;                 // number of solutions found by the search
+
+	/**
+	 * Constructor of the BacktrackingSearch for the 9x9 grid.
+	 */
+	public BacktrackingSearch() {
+		this(SudokuTopology.STANDARD);
+	}
+
+	/**
+	 * Constructor of the BacktrackingSearch.
+	 *
+	 * @param topology layout of the grid
+	 */
+	public BacktrackingSearch(SudokuTopology topology) {
+		this.topology = topology;
+		this.peer = topology.peer;
+		this.units = topology.unit;
+		this.allDigits = (1 << topology.size) - 1;
+		this.cand = new int[topology.cells];
+		this.first = new int[topology.cells];
+		this.assigned = new boolean[topology.cells];
+		this.undoCell = new int[topology.cells * (topology.peers + 1)];
+		this.undoMask = new int[topology.cells * (topology.peers + 1)];
+		this.nodeLimit = Long.MAX_VALUE;
+	}
+
+	/**
+	 * This method solves the puzzle described by the candidate masks.
+	 * If a solution is found, the masks are updated to hold it.
+	 *
+	 * @param candidates array of candidate masks, updated in place on success
+	 * @return true if a solution has been found, false otherwise
+	 */
+	@Override
+	public boolean solve(int[] candidates) {
+		return countSolutions(candidates, 1) > 0;
+	}
+
+	@Override
+	public int countSolutions(int[] candidates, int limit) {
+		System.arraycopy(candidates, 0, cand, 0, cand.length);
+		for (int i = 0; i < cand.length; i++)
+			assigned[i] = false;
+		top = 0;
+		nodeCount = 0;
+		this.limit = limit;
+		solutions = 0;
+		search();
+
+		if (solutions > 0)
+			System.arraycopy(first, 0, candidates, 0, cand.length);
+		return solutions;
+	}
+
+	/**
+	 * This method bounds the nodes visited by each search. A search that reaches
+	 * the bound stops with the solutions found so far, and getNodeCount() then
+	 * returns more than the bound, so the caller can tell it from a complete
+	 * search.
+	 *
+	 * @param limit number of nodes after which a search gives up
+	 */
+	public void setNodeLimit(long limit) {
+		if (limit < 1)
+			throw new IllegalArgumentException("Node limit must be positive: " + limit);
+		this.nodeLimit = limit;
+	}
+
+	@Override
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	@Override
+	public SudokuTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * This method chooses the unassigned cell with the fewest candidates and tries
+	 * each of its digits. Each time every cell is assigned, a solution is counted.
+	 *
+	 * @return true if limit solutions have been found
+	 */
+	private boolean search() {
+		int best = -1;
+		int bestCount = Integer.MAX_VALUE;
+		for (int i = 0; i < cand.length; i++) {
+			if (assigned[i])
+				continue;
+			int n = Integer.bitCount(cand[i]);
+			if (n == 0)
+				return false;
+			if (n < bestCount) {
+				best = i;
+				bestCount = n;
+				if (n == 1)
+					break;
+			}
+		}
+		if (best < 0) {
+			if (++solutions == 1)
+				System.arraycopy(cand, 0, first, 0, cand.length);
+			return solutions >= limit;
+		}
+
+		int mask = cand[best];
+		if (bestCount > 1) {
+			// a digit with a single place left in a unit is tried alone
+			int forced = hiddenSingle();
+			if (forced == CONFLICT)
+				return false;
+			if (forced != NONE) {
+				best = forced >>> 5;
+				mask = 1 << (forced & 31);
+			}
+		}
+
+		assigned[best] = true;
+		while (mask != 0) {
+			int digit = mask & -mask;
+			mask &= mask - 1;
+			if (++nodeCount > nodeLimit)
+				return true;
+
+			int mark = top;
+			if (assign(best, digit) && search())
+				return true;
+			undo(mark);
+		}
+		assigned[best] = false;
+
+		return false;
+	}
+
+	/**
+	 * This method looks for a digit that has a single place left in a unit. For
+	 * each unit it computes the digits seen in at least one cell and in at least
+	 * two cells with two masks, so the scan costs one pass over the cells of the
+	 * unit.
+	 *
+	 * @return (cell << 5) | (digit - 1) for the first hidden single found, NONE if
+	 *         there is none, CONFLICT if a digit has no place left in a unit
+	 */
+	private int hiddenSingle() {
+		for (int[] cells : units) {
+			int once = 0, twice = 0, placed = 0;
+			for (int cell : cells) {
+				int m = cand[cell];
+				if (assigned[cell])
+					placed |= m;
+				else {
+					twice |= once & m;
+					once |= m;
+				}
+			}
+			if ((once | placed) != allDigits)
+				return CONFLICT;
+
+			int hidden = once & ~twice & ~placed;
+			if (hidden != 0) {
+				int digit = hidden & -hidden;
+				for (int cell : cells)
+					if (!assigned[cell] && (cand[cell] & digit) != 0)
+						return (cell << 5) | Integer.numberOfTrailingZeros(digit);
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * This method sets a cell to a digit and removes the digit from its peers.
+	 *
+	 * @param cell cell to be set
+	 * @param digit mask of the digit
+	 * @return false if a peer has no candidate left
+	 */
+	private boolean assign(int cell, int digit) {
+		save(cell);
+		cand[cell] = digit;
+
+		int[] peers = peer[cell];
+		for (int k = 0; k < peers.length; k++) {
+			int p = peers[k];
+			if ((cand[p] & digit) != 0) {
+				save(p);
+				cand[p] &= ~digit;
+				if (cand[p] == 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private void save(int cell) {
+		undoCell[top] = cell;
+		undoMask[top] = cand[cell];
+		top++;
+	}
+
+	/**
+	 * This method restores the masks changed since the undo stack had mark entries.
+	 */
+	private void undo(int mark) {
+		while (top > mark) {
+			top--;
+			cand[undoCell[top]] = undoMask[top];
+		}
+	}
+
+}
@@ -0,0 +1,499 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements the batch mode of the Sudoku Game. It solves all the
+ * puzzles of a file without the GUI and writes one line per puzzle in the
+ * output file:
+ *
+ * solution,status
+ *
+ * where solution holds the symbols of the puzzle in row order (1-9, then A-P
+ * for the 16x16 and 25x25 grids, '.' for the cells that could not be solved)
+ * and status is SOLVED or INCONSISTENT (the puzzle has no solution). At the end
+ * it prints the number of puzzles solved per second.
+ *
+ * The input is a text file in any format of SudokuFileReader.readPuzzles(), or
+ * a binary PuzzleCorpus file, whose puzzles are decoded from the mapped file
+ * by the workers instead of being parsed first, each task decoding them in
+ * turn into a single array.
+ *
+ * With -count n the solutions of each puzzle are also counted, stopping at n
+ * (2 is enough to check uniqueness), and written in a third column:
+ *
+ * solution,status,count
+ *
+ * where a count equal to n means at least n solutions. The count is done by
+ * SudokuEngine.solve() in the same pass: it is free for the puzzles solved by
+ * the rules alone, which have exactly one solution, and the others are counted
+ * from the fixed point of the rules.
+ *
+ * With -rate two more columns hold the DifficultyRating of each puzzle, its
+ * tier and its score, computed from the trace of the solve:
+ *
+ * solution,status[,count],tier,score
+ *
+ * When the solutions are also counted, the score of the puzzles needing the
+ * search includes the nodes visited by the count.
+ *
+ * With -dedupe the 9x9 puzzles that are copies of an earlier puzzle of the
+ * file (relabelled, transposed, rotated or with permuted rows and columns, see
+ * CanonicalForm) are removed before solving, so the output holds one line per
+ * distinct puzzle, in input order. The exact copies are dropped first by
+ * hashing the givens, and the canonical forms of the other puzzles are
+ * computed on the pool like the solutions.
+ *
+ * With -cache n the solutions go through a SolutionCache of n puzzles, so the
+ * puzzles seen before in the file, or a copy of them, are not solved again.
+ * The cache is not used with -count or -rate.
+ *
+ * With -index file the cache also looks up the 9x9 puzzles in a SolutionIndex
+ * and adds the new solutions to it, so they are not solved again by the next
+ * runs. The cache then holds CACHE_SIZE puzzles unless -cache is given.
+ *
+ * The puzzles are solved on a ForkJoinPool (work stealing) using all the cores
+ * by default. Each worker thread keeps its own SudokuEngine for each grid size
+ * and reuses it for all the puzzles of that size it solves, and each result is
+ * stored at the index of its puzzle so the output keeps the input order. The
+ * solutions are kept packed like the puzzles of a PuzzleCorpus until they are
+ * written.
+ *
+ * Usage: java BatchSolver [-threads n] [-count n] [-rate] [-dedupe] [-cache n] [-index file] input output
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class BatchSolver {
+
+	private static final int THRESHOLD = 256; // puzzles solved by a task without splitting it
+	private static final int CACHE_SIZE = 1 << 16; // puzzles of the cache in front of an index
+	private static final int CHUNK = 1 << 26;      // largest array of packed solutions, in bytes
+
+	private final ForkJoinPool pool;                   // work stealing pool solving the puzzles
+	private final int countLimit;                      // limit of the solution counts, 0 to skip them
+	private final boolean rated;                       // write the difficulty rating of each puzzle
+	private SolutionCache cache;                       // cache of the solutions, null to solve every puzzle
+	private final ThreadLocal<SudokuEngine[]> engines = // engines of each worker thread, by box size
+			ThreadLocal.withInitial(() -> new SudokuEngine[SudokuTopology.MAX_BOX + 1]);
+	private List<int[]> puzzles;                       // puzzles being solved
+	private byte[][] solutions;                        // solutions packed like the puzzles of a corpus, in input order
+	private int bits;                                  // bits per cell of the packed solutions, 4 or 8
+	private int record;                                // bytes of a packed solution
+	private int perChunk;                              // packed solutions in each array
+	private SolverStatus[] statuses;                   // status of each puzzle, in input order
+	private int[] counts;                              // number of solutions of each puzzle, in input order
+	private DifficultyRating[] ratings;                // difficulty of each puzzle, in input order
+
+	/**
+	 * Constructor of the BatchSolver. It uses one worker thread per core.
+	 */
+	public BatchSolver() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of the BatchSolver.
+	 *
+	 * @param threads number of worker threads
+	 */
+	public BatchSolver(int threads) {
+		this(threads, 0, false);
+	}
+
+	/**
+	 * Constructor of the BatchSolver counting the solutions or rating the
+	 * difficulty of each puzzle.
+	 *
+	 * @param threads    number of worker threads
+	 * @param countLimit number of solutions after which a count stops, 0 to skip
+	 *                   the counts
+	 * @param rated      true to write the difficulty rating of each puzzle
+	 */
+	public BatchSolver(int threads, int countLimit, boolean rated) {
+		if (countLimit < 0)
+			throw new IllegalArgumentException("Count limit must not be negative: " + countLimit);
+
+		this.pool = new ForkJoinPool(threads);
+		this.countLimit = countLimit;
+		this.rated = rated;
+	}
+
+	/**
+	 * This method puts a cache of the solutions in front of the engines. The cache
+	 * is only used when the solutions are neither counted nor rated, which needs
+	 * the trace of a full solve.
+	 *
+	 * @param cache cache of the solutions, null to solve every puzzle
+	 */
+	public void setCache(SolutionCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * This method solves all the puzzles on the pool and waits for the results.
+	 * The solutions are packed in records of the corpus format (4 bits per cell
+	 * for the 9x9 grids, 41 bytes per puzzle), sized for the largest grid of
+	 * the list, in arrays of at most CHUNK bytes, so the results of millions of
+	 * puzzles do not take an array each.
+	 *
+	 * @param puzzles list of puzzles, each one an array of size x size digits (0 for blank cells)
+	 */
+	public void solveAll(List<int[]> puzzles) {
+		this.puzzles = puzzles;
+		statuses = new SolverStatus[puzzles.size()];
+		counts = new int[puzzles.size()];
+		ratings = new DifficultyRating[puzzles.size()];
+
+		int cells = 0; // cells of the largest grid
+		if (puzzles instanceof PuzzleCorpus) {
+			int size = ((PuzzleCorpus) puzzles).getGridSize();
+			cells = size * size;
+		} else
+			for (int[] puzzle : puzzles)
+				cells = Math.max(cells, puzzle.length);
+		bits = PuzzleCorpus.bitsOf((int) Math.round(Math.sqrt(cells)));
+		record = Math.max(1, PuzzleCorpus.recordOf(cells, bits));
+		perChunk = CHUNK / record;
+		solutions = new byte[(puzzles.size() + perChunk - 1) / perChunk][];
+		for (int c = 0; c < solutions.length; c++)
+			solutions[c] = new byte[Math.min(perChunk, puzzles.size() - c * perChunk) * record];
+
+		pool.invoke(new SolveTask(0, puzzles.size()));
+	}
+
+	/**
+	 * This method removes the 9x9 puzzles that are copies of an earlier puzzle of
+	 * the list, keeping the first copy of each. The exact copies are found first
+	 * with a hash of the givens, which costs far less than a canonical form, so
+	 * the canonical forms, computed on the pool, are only needed for the first
+	 * copy of each grid; the puzzles of the other sizes are all kept.
+	 *
+	 * @param puzzles list of puzzles, each one an array of size x size digits (0 for blank cells)
+	 * @return the distinct puzzles, in input order
+	 */
+	public ArrayList<int[]> dedupe(List<int[]> puzzles) {
+		boolean[] copies = new boolean[puzzles.size()]; // exact copies of an earlier puzzle
+		HashSet<SolutionCache.Givens> exact = new HashSet<SolutionCache.Givens>();
+		for (int i = 0; i < copies.length; i++)
+			copies[i] = !exact.add(new SolutionCache.Givens(puzzles.get(i)));
+
+		CanonicalForm[] forms = new CanonicalForm[puzzles.size()];
+		pool.invoke(new CanonicalTask(puzzles, copies, forms, 0, forms.length));
+
+		ArrayList<int[]> distinct = new ArrayList<int[]>();
+		HashSet<CanonicalForm> seen = new HashSet<CanonicalForm>();
+		for (int i = 0; i < forms.length; i++)
+			if (!copies[i] && (forms[i] == null || seen.add(forms[i])))
+				distinct.add(puzzles.get(i));
+		return distinct;
+	}
+
+	/**
+	 * This method stops the worker threads of the pool.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * This class implements the task solving a range of puzzles. Large ranges are
+	 * split in two halves so idle workers can steal them.
+	 */
+	private class SolveTask extends RecursiveAction {
+
+		private final int from; // first puzzle of the range
+		private final int to;   // end of the range (exclusive)
+
+		SolveTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SolveTask(from, middle), new SolveTask(middle, to));
+				return;
+			}
+
+			int[] buffer = buffer(puzzles);
+			int[] solution = null; // solution of the current puzzle, before it is packed
+			for (int i = from; i < to; i++) {
+				int[] puzzle = puzzle(puzzles, i, buffer);
+				if (solution == null || solution.length != puzzle.length)
+					solution = new int[puzzle.length];
+				SudokuEngine engine = engine(puzzle.length);
+				if (cache != null && countLimit == 0 && !rated)
+					statuses[i] = cache.solve(engine, puzzle, solution);
+				else {
+					engine.solve(puzzle);
+					engine.getSolution(solution);
+					statuses[i] = engine.status();
+					counts[i] = engine.getSolutionCount();
+					if (rated)
+						ratings[i] = engine.getDifficulty();
+				}
+				PuzzleCorpus.pack(solution, bits, solutions[i / perChunk], (i % perChunk) * record);
+			}
+		}
+
+	}
+
+	/**
+	 * This class implements the task computing the canonical forms of a range of
+	 * puzzles. Large ranges are split in two halves so idle workers can steal them.
+	 */
+	private static class CanonicalTask extends RecursiveAction {
+
+		private final List<int[]> puzzles;      // puzzles of the file
+		private final boolean[] copies;         // exact copies of an earlier puzzle, skipped
+		private final CanonicalForm[] forms;    // canonical form of each 9x9 puzzle, null for the others
+		private final int from;                 // first puzzle of the range
+		private final int to;                   // end of the range (exclusive)
+
+		CanonicalTask(List<int[]> puzzles, boolean[] copies, CanonicalForm[] forms, int from, int to) {
+			this.puzzles = puzzles;
+			this.copies = copies;
+			this.forms = forms;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new CanonicalTask(puzzles, copies, forms, from, middle),
+						new CanonicalTask(puzzles, copies, forms, middle, to));
+				return;
+			}
+
+			int[] buffer = buffer(puzzles);
+			for (int i = from; i < to; i++) {
+				if (copies[i])
+					continue;
+				int[] puzzle = puzzle(puzzles, i, buffer);
+				if (puzzle.length == SudokuTopology.STANDARD.cells)
+					forms[i] = CanonicalForm.of(puzzle);
+			}
+		}
+
+	}
+
+	/**
+	 * This method returns the array a task decodes the puzzles of a corpus into,
+	 * so a corpus of millions of puzzles does not allocate an array per puzzle.
+	 *
+	 * @param puzzles puzzles of the file
+	 * @return array of size x size cells, null if the puzzles are not a corpus
+	 */
+	private static int[] buffer(List<int[]> puzzles) {
+		if (!(puzzles instanceof PuzzleCorpus))
+			return null;
+		int size = ((PuzzleCorpus) puzzles).getGridSize();
+		return new int[size * size];
+	}
+
+	/**
+	 * This method returns a puzzle of the file, decoded into the buffer of the
+	 * task if the puzzles are a corpus. The engines and the cache do not keep
+	 * the array of the givens, so it can be overwritten by the next puzzle.
+	 *
+	 * @param puzzles puzzles of the file
+	 * @param index   index of the puzzle
+	 * @param buffer  array returned by buffer()
+	 * @return array of size x size digits (0 for blank cells)
+	 */
+	private static int[] puzzle(List<int[]> puzzles, int index, int[] buffer) {
+		if (buffer == null)
+			return puzzles.get(index);
+		((PuzzleCorpus) puzzles).read(index, buffer);
+		return buffer;
+	}
+
+	/**
+	 * This method returns the engine of the current worker thread for a grid size.
+	 * 
+	 * @param cells number of cells of the grid
+	 * @return engine reused by the worker for that size
+	 */
+	private SudokuEngine engine(int cells) {
+		SudokuTopology topology = SudokuTopology.ofCells(cells);
+		SudokuEngine[] bySize = engines.get();
+		if (bySize[topology.box] == null) {
+			bySize[topology.box] = new SudokuEngine(topology);
+			bySize[topology.box].setCountLimit(countLimit);
+		}
+		return bySize[topology.box];
+	}
+
+	/**
+	 * This method writes the solution and the status of each puzzle in the output
+	 * file, and its number of solutions and its rating if they are asked for.
+	 *
+	 * @param output file to be written
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File output) throws IOException {
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(output))) {
+			int[] buffer = buffer(puzzles);
+			int[] solution = null;
+			for (int i = 0; i < statuses.length; i++) {
+				int cells = (buffer != null) ? buffer.length : puzzles.get(i).length;
+				if (solution == null || solution.length != cells)
+					solution = new int[cells];
+				PuzzleCorpus.unpack(solutions[i / perChunk], (i % perChunk) * record, bits, solution);
+				bw.write(format(solution));
+				bw.write(',');
+				bw.write(statuses[i].name());
+				if (countLimit > 0) {
+					bw.write(',');
+					bw.write(Integer.toString(counts[i]));
+				}
+				if (rated) {
+					bw.write(',');
+					bw.write(ratings[i].getTier().name());
+					bw.write(',');
+					bw.write(Long.toString(ratings[i].getScore()));
+				}
+				bw.newLine();
+			}
+		}
+	}
+
+	/**
+	 * This method returns the number of puzzles solved by the last call to solveAll().
+	 *
+	 * @return number of puzzles with a SOLVED status
+	 */
+	public int getSolvedCount() {
+		int solved = 0;
+		for (SolverStatus status : statuses)
+			if (status == SolverStatus.SOLVED)
+				solved++;
+		return solved;
+	}
+
+	/**
+	 * This method returns the number of puzzles with a unique solution found by
+	 * the last call to solveAll(), when the solutions are counted.
+	 *
+	 * @return number of puzzles with a count of 1
+	 */
+	public int getUniqueCount() {
+		int unique = 0;
+		for (int count : counts)
+			if (count == 1)
+				unique++;
+		return unique;
+	}
+
+	/**
+	 * This method converts a grid into a line of one symbol per cell, '.' for
+	 * blank cells.
+	 *
+	 * @param grid array of size x size digits (0 for blank cells)
+	 * @return line of size x size chars
+	 */
+	static String format(int[] grid) {
+		char[] line = new char[grid.length];
+		for (int i = 0; i < grid.length; i++)
+			line[i] = (grid[i] == 0) ? '.' : SudokuFileReader.symbolOf(grid[i]);
+		return new String(line);
+	}
+
+	public static void main(String[] args) {
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		int countLimit = 0;
+		boolean rated = false;
+		boolean dedupe = false;
+		int cacheSize = 0;
+		File indexFile = null;
+		int arg = 0;
+		while (arg + 2 < args.length && args[arg].startsWith("-")) {
+			if (args[arg].equals("-rate")) {
+				rated = true;
+				arg++;
+			} else if (args[arg].equals("-dedupe")) {
+				dedupe = true;
+				arg++;
+			} else if (args[arg].equals("-threads") && arg + 3 < args.length) {
+				threads = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-count") && arg + 3 < args.length) {
+				countLimit = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-cache") && arg + 3 < args.length) {
+				cacheSize = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-index") && arg + 3 < args.length) {
+				indexFile = new File(args[arg + 1]);
+				arg += 2;
+			} else
+				break;
+		}
+		if (args.length != arg + 2) {
+			System.err.println("Usage: java BatchSolver [-threads n] [-count n] [-rate] [-dedupe] [-cache n] [-index file] input output");
+			System.exit(1);
+		}
+
+		SolutionIndex index = null;
+		try {
+			File input = new File(args[arg]);
+			PuzzleCorpus corpus = PuzzleCorpus.isCorpus(input) ? new PuzzleCorpus(input) : null;
+			List<int[]> puzzles = (corpus != null) ? corpus : SudokuFileReader.readPuzzles(input);
+
+			BatchSolver batch = new BatchSolver(threads, countLimit, rated);
+			SolutionCache cache = null;
+			if (indexFile != null) {
+				index = new SolutionIndex(indexFile, true);
+				cache = new SolutionCache((cacheSize > 0) ? cacheSize : CACHE_SIZE, index);
+			} else if (cacheSize > 0)
+				cache = new SolutionCache(cacheSize);
+			batch.setCache(cache);
+			long startTime = System.nanoTime();
+			if (dedupe) {
+				int read = puzzles.size();
+				puzzles = batch.dedupe(puzzles);
+				System.out.printf("Removed %d duplicates of %d puzzles in %.3f s%n", read - puzzles.size(), read,
+						(System.nanoTime() - startTime) / 1e9);
+				startTime = System.nanoTime();
+			}
+			batch.solveAll(puzzles);
+			long totalTime = System.nanoTime() - startTime;
+			batch.shutdown();
+			if (corpus != null)
+				corpus.close();
+
+			batch.write(new File(args[arg + 1]));
+
+			double seconds = totalTime / 1e9;
+			System.out.printf("Solved %d of %d puzzles in %.3f s (%.0f puzzles/second)%n", batch.getSolvedCount(),
+					puzzles.size(), seconds, puzzles.size() / seconds);
+			if (countLimit > 0)
+				System.out.printf("%d of %d puzzles have a unique solution%n", batch.getUniqueCount(), puzzles.size());
+			if (cache != null)
+				System.out.printf("Cache: %d hits, %d misses, %d evictions%n", cache.getHits(), cache.getMisses(),
+						cache.getEvictions());
+			if (index != null) {
+				System.out.printf("Index: %d hits, %d keys%n", cache.getIndexHits(), index.getCount());
+				index.close();
+			}
+
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
@@ -13,8 +13,9 @@ import javax.swing.JTextField;
 
 /**
  * This class implements the Board of the sudoku game.
- * it consists of a grid layout of 9x9 JPanel and a JTextField array of 9x9.
- * After initializing the JTextField array, it adds it on the JPanel grid layout
+ * it consists of a grid layout of size x size JPanel and a JTextField array of size x size.
+ * After initializing the JTextField array, it adds it on the JPanel grid layout.
+ * The size is 9 by default and changes with resize() when a 16x16 or 25x25 puzzle is loaded.
  * @author Zeyad Abdelwahab
  * @version 1.0
  */
@@ -23,36 +24,53 @@ public class Board extends JPanel implements ActionListener{
 	
 	private JPanel Board;
 	private JTextField[][]board;
+	private int size; // number of rows and columns of the board
 	
 	
 	/**
 	 * Constructor of the Board of the sudoku game.
-	 * it creates a JPanel grid layout of 9x9 called Board.
-	 * it creates a JTextFiled array [9][9] called board.
+	 * it creates a JPanel grid layout of 9x9 called Board and fills it with resize().
+	 */
+	public Board() {
+		Board = new JPanel();
+		Board.setBackground(Color.BLACK);
+		resize(9);
+	}
+
+	/**
+	 * This method changes the number of rows and columns of the board.
+	 * it creates a JTextFiled array [size][size] called board.
 	 * it iterates on the board and creates a JTextField on each array cell, it also sets each
 	 * cell to be Editable and sets the JTextField in the center of the cell.
 	 * 
-	 * After that it adds the JTextField array [9][9] to the JPanel Board
+	 * After that it replaces the cells of the JPanel Board by the JTextField array [size][size].
+	 * Nothing changes if the board already has that size.
+	 * Synchronized keyword is used to prevent 2 threads to use this function in the same time
+	 * @param size number of rows of the puzzle (9, 16 or 25)
 	 */
-	public Board() {
-		Board = new JPanel(new GridLayout(9, 9)); // JPanel gridlayout of 9x9
-		Board.setBackground(Color.BLACK);
-		board = new JTextField[9][9]; // JTextField array of 9x9
+	public synchronized void resize(int size) {
+		if (size == this.size)
+			return;
+
+		this.size = size;
+		Board.removeAll();
+		Board.setLayout(new GridLayout(size, size)); // JPanel gridlayout of size x size
+		board = new JTextField[size][size]; // JTextField array of size x size
+		Font font = new Font("Arial", Font.PLAIN, 180 / size); // smaller digits for larger grids
 
 		/*
-		 * iterates on the JTextField array[9][9] to initialize each cell in the array
+		 * iterates on the JTextField array[size][size] to initialize each cell in the array
 		 * to a new JTextField, sets each cell to be editable, and sets the alignment of
 		 * each JTextField to be in the center.
 		 * 
 		 * At the end, it adds each cell to the gridlayout JPanel Board.
 		 */
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
 
 				board[i][j] = new JTextField();
 				board[i][j].setEditable(true);
 				board[i][j].setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
-				Font font = new Font("Arial", Font.PLAIN, 20);
 
 				board[i][j].setFont(font);
 
@@ -63,21 +81,32 @@ public class Board extends JPanel implements ActionListener{
 			}
 		}
 
+		Board.revalidate();
+		Board.repaint();
+	}
+
+	/**
+	 * This method returns the number of rows and columns of the board.
+	 * Synchronized keyword is used to prevent 2 threads to use this function in the same time
+	 * @return size of the board (9, 16 or 25)
+	 */
+	public synchronized int getBoardSize() {
+		return size;
 	}
 
 	/**
-	 * This method returns the JPanel gridlayout 9x9 Board.
+	 * This method returns the JPanel gridlayout size x size Board.
 	 * Synchronized keyword is used to prevent 2 threads to use this function in the same time
-	 * @return JPanel Board gridlayout 9x9 JPanel
+	 * @return JPanel Board gridlayout size x size JPanel
 	 */
 	public synchronized JPanel getPlayingBoardPanel() {
 		return this.Board;
 	}
 	
 	/**
-	 * This method returns the JTextField array 9x9 board.
+	 * This method returns the JTextField array size x size board.
 	 * Synchronized keyword is used to prevent 2 threads to use this function in the same time
-	 * @return JTextField array 9x9 board
+	 * @return JTextField array size x size board
 	 */
 	public synchronized JTextField[][] getboardArray() {
 		return this.board;
@@ -103,8 +132,8 @@ public class Board extends JPanel implements ActionListener{
 	 * Synchronized keyword is used to prevent 2 threads to use this function in the same time
 	 */
 	public synchronized void clear() {
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
 				board[i][j].setText("");
 				board[i][j].setBackground(Color.WHITE);
 			}
@@ -119,8 +148,8 @@ public class Board extends JPanel implements ActionListener{
 	 * @return true: if red cell found, false: if cells are not red
 	 */
 	public synchronized boolean inConsistency() {
-		for(int i=0;i<9;i++)
-			for(int j=0;j<9;j++)
+		for(int i=0;i<size;i++)
+			for(int j=0;j<size;j++)
 				if(board[i][j].getBackground()==Color.RED)
 					return true;
 		return false;
@@ -132,8 +161,8 @@ public class Board extends JPanel implements ActionListener{
 	 * @param editable true to set cells as editable, false to set the cells as uneditable.
 	 */
 	public synchronized void setEditability(boolean editable) {
-		for(int i=0;i<9;i++)
-			for(int j=0;j<9;j++)
+		for(int i=0;i<size;i++)
+			for(int j=0;j<size;j++)
 				board[i][j].setEditable(editable);
 	}
 	
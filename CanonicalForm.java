@@ -0,0 +1,657 @@
+import java.util.Arrays;
+
+/**
+ * This class implements the canonical form of a 9x9 puzzle, used to find the
+ * copies of a puzzle that were relabelled, transposed, rotated or had their
+ * rows and columns permuted.
+ *
+ * The transforms that keep a grid valid are the relabelling of the digits, the
+ * transposition, the permutations of the bands (groups of 3 rows) and of the
+ * rows inside each band, and the same for the stacks and the columns. The
+ * rotations and reflections are combinations of those. The canonical form is
+ * the smallest grid, in row order, that can be reached with these transforms,
+ * where the digits are relabelled in order of first appearance and the blank
+ * cells come after all the digits (so the rows with the most givens come first
+ * and leave few ties between the candidate transforms). Two puzzles have the
+ * same canonical form if and only if one is a transform of the other.
+ *
+ * The smallest grid is found row by row. Each candidate transform is a
+ * transposition, one of the 1296 column permutations and the rows chosen so
+ * far; at each step only the candidates giving the smallest next row are kept,
+ * so most of the 2 x 1296 x 1296 row and column permutations are never looked
+ * at. When no row or column repeats a digit, the first row only depends on
+ * the number of givens in each stack, so the column permutations are only
+ * tried on the rows giving the best one; otherwise (the givens are invalid,
+ * and a repeated digit reuses its label) the first row is chosen like the
+ * others. The transform found is kept, so a grid (for example a solution) can
+ * be moved to the canonical layout and back.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class CanonicalForm {
+
+	private static final int SIZE = 9;  // number of rows, columns and digits
+	private static final int BOX = 3;   // number of rows in a band
+	private static final int BAND_ROWS = 7; // mask of the rows of the first band
+	private static final int DISTINCT_MIN = 256; // candidates kept without looking for equal states
+	private static final int[][] PERMS = { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } }; // orders of 3 items
+	private static final int[][] COLUMN_ORDERS = columnOrders(); // the 1296 column permutations, stacks first
+
+	private final int[] cells;        // canonical givens in row order (0 for blank cells)
+	private final long hash;          // 64 bit hash of the canonical givens
+	private final boolean transposed; // the grid is transposed before the permutations
+	private final int[] rowOrder;     // row of the transposed grid moved to each row
+	private final int[] colOrder;     // column of the transposed grid moved to each column
+	private final int[] label;        // canonical digit of each digit (0 for unused digits)
+
+	private CanonicalForm(int[] cells, boolean transposed, int[] rowOrder, int[] colOrder, int[] label) {
+		this.cells = cells;
+		this.hash = hash(cells);
+		this.transposed = transposed;
+		this.rowOrder = rowOrder;
+		this.colOrder = colOrder;
+		this.label = label;
+	}
+
+	/**
+	 * This class implements the list of the candidate transforms while the rows
+	 * are chosen. Each candidate is packed in three numbers, so the lists are
+	 * refilled from row to row without creating anything per candidate:
+	 * - meta: the transposition (bit 0), the column permutation (index in
+	 *   COLUMN_ORDERS, bits 1-11), the rows chosen so far (bits 12-20) and the
+	 *   number of digits labelled so far (bits 21-24);
+	 * - rows: the row of the grid chosen as each row of the canonical grid, 4
+	 *   bits each;
+	 * - labels: the canonical digit of each digit labelled so far, 4 bits each.
+	 */
+	private static final class Candidates {
+
+		int[] meta = new int[64];     // transposition, column permutation, rows chosen and labels used
+		long[] rows = new long[64];   // rows chosen, in canonical order
+		long[] labels = new long[64]; // canonical digit of each digit
+		int size;                     // number of candidates
+
+		void add(int meta, long rows, long labels) {
+			if (size == this.meta.length) {
+				this.meta = Arrays.copyOf(this.meta, 2 * size);
+				this.rows = Arrays.copyOf(this.rows, 2 * size);
+				this.labels = Arrays.copyOf(this.labels, 2 * size);
+			}
+			this.meta[size] = meta;
+			this.rows[size] = rows;
+			this.labels[size] = labels;
+			size++;
+		}
+
+		void move(int from, int to) {
+			meta[to] = meta[from];
+			rows[to] = rows[from];
+			labels[to] = labels[from];
+		}
+
+	}
+
+	/**
+	 * This method computes the canonical form of a puzzle.
+	 *
+	 * @param givens array of 81 digits in row order (0 for blank cells)
+	 * @return canonical form of the puzzle
+	 */
+	public static CanonicalForm of(int[] givens) {
+		if (givens.length != SIZE * SIZE)
+			throw new IllegalArgumentException("Canonical forms are only computed for 9x9 grids: " + givens.length);
+
+		int[][] grids = { givens, new int[SIZE * SIZE] };
+		for (int r = 0; r < SIZE; r++)
+			for (int c = 0; c < SIZE; c++)
+				grids[1][c * SIZE + r] = givens[r * SIZE + c];
+
+		int[] cells = new int[SIZE * SIZE];
+		int[] best = new int[SIZE];
+		int[] row = new int[SIZE];
+		int[] label = new int[SIZE + 1];
+		Candidates candidates = new Candidates();
+		Candidates next = new Candidates();
+
+		int[][] twins = { twins(grids[0]), twins(grids[1]) };
+
+		int k = 0;              // next row of the canonical grid
+		boolean merging = true; // the last look for equal states found some
+		if (repeats(grids)) {
+			// a row or a column holds a digit twice: its first row may reuse a label,
+			// so the first row is chosen like the others, from every permutation
+			for (int t = 0; t < 2; t++)
+				firstCandidates(grids[t], t, 0, null, candidates);
+		} else {
+			// every digit of the first row is new, so the row only depends on the
+			// number of givens in each stack: the best one is found without the
+			// column permutations, which are only tried on the rows reaching it
+			int[][] firsts = new int[2 * SIZE][SIZE]; // best first row of each row of both grids
+			for (int t = 0; t < 2; t++)
+				for (int r = 0; r < SIZE; r++) {
+					firstRow(grids[t], r, firsts[t * SIZE + r]);
+					if (t + r == 0 || compare(firsts[t * SIZE + r], best) < 0)
+						System.arraycopy(firsts[t * SIZE + r], 0, best, 0, SIZE);
+				}
+			for (int t = 0; t < 2; t++) {
+				int rows = 0; // rows of the grid reaching the best first row
+				for (int r = 0; r < SIZE; r++)
+					if (compare(firsts[t * SIZE + r], best) == 0 && twins[t][r] == 0)
+						rows |= 1 << r;
+				if (rows != 0)
+					firstCandidates(grids[t], t, rows, best, candidates);
+			}
+			System.arraycopy(best, 0, cells, 0, SIZE);
+			merging = distinct(candidates, grids);
+			k = 1;
+		}
+
+		int[] ties = new int[2 * SIZE]; // candidate and row of each tie, grown when needed
+		int[] labelled = new int[SIZE + 1]; // labels of a candidate
+		for (; k < SIZE; k++) {
+			int tieCount = 0;
+			boolean found = false;
+			for (int i = 0; i < candidates.size; i++) {
+				int meta = candidates.meta[i];
+				int[] grid = grids[meta & 1];
+				int[] colOrder = COLUMN_ORDERS[order(meta)];
+				int[] twin = twins[meta & 1];
+				for (int d = 0; d <= SIZE; d++)
+					labelled[d] = (int) (candidates.labels[i] >>> (4 * d)) & 15;
+				int allowed = allowed(meta, candidates.rows[i], k);
+				for (int r = 0; r < SIZE; r++) {
+					if ((allowed & (1 << r)) == 0 || (twin[r] & ~(meta >>> 12)) != 0)
+						continue;
+					int cmp = relabel(grid, r, colOrder, labelled, meta >>> 21, row, label, found ? best : null);
+					if (cmp > 0)
+						continue;
+					if (cmp < 0) {
+						tieCount = 0;
+						System.arraycopy(row, 0, best, 0, SIZE);
+						found = true;
+					}
+					if (tieCount == ties.length)
+						ties = Arrays.copyOf(ties, 2 * ties.length);
+					ties[tieCount++] = i;
+					ties[tieCount++] = r;
+				}
+			}
+
+			next.size = 0;
+			for (int j = 0; j < tieCount; j += 2) {
+				int i = ties[j];
+				int meta = candidates.meta[i];
+				extend(meta, candidates.rows[i], candidates.labels[i], grids[meta & 1], k, ties[j + 1], next);
+			}
+			System.arraycopy(best, 0, cells, k * SIZE, SIZE);
+			Candidates swap = candidates;
+			candidates = next;
+			next = swap;
+			if (merging)
+				merging = distinct(candidates, grids);
+		}
+
+		int meta = candidates.meta[0];
+		int[] rowOrder = new int[SIZE];
+		for (int r = 0; r < SIZE; r++)
+			rowOrder[r] = (int) (candidates.rows[0] >>> (4 * r)) & 15;
+		int[] labels = new int[SIZE + 1];
+		int labelCount = meta >>> 21;
+		for (int d = 1; d <= SIZE; d++) {
+			labels[d] = (int) (candidates.labels[0] >>> (4 * d)) & 15;
+			if (labels[d] == 0)
+				labels[d] = ++labelCount; // digits missing from the givens keep their order
+		}
+		return new CanonicalForm(cells, (meta & 1) != 0, rowOrder, COLUMN_ORDERS[order(meta)], labels);
+	}
+
+	/**
+	 * This method finds, for each row of a grid, the rows before it in its band
+	 * holding the same givens. Exchanging two such rows leaves the grid as it
+	 * is, so a row is not chosen while one of its twins is still unused: the
+	 * twin gives the same rows.
+	 */
+	private static int[] twins(int[] grid) {
+		int[] twins = new int[SIZE];
+		for (int r = 0; r < SIZE; r++)
+			for (int o = r / BOX * BOX; o < r; o++)
+				if (Arrays.equals(grid, r * SIZE, r * SIZE + SIZE, grid, o * SIZE, o * SIZE + SIZE))
+					twins[r] |= 1 << o;
+		return twins;
+	}
+
+	/**
+	 * This method checks if a row or a column of the givens holds a digit twice.
+	 * Such a puzzle has no solution, but it still gets a canonical form.
+	 */
+	private static boolean repeats(int[][] grids) {
+		for (int[] grid : grids)
+			for (int r = 0; r < SIZE; r++) {
+				int seen = 0;
+				for (int c = 0; c < SIZE; c++) {
+					int digit = grid[r * SIZE + c];
+					if (digit != 0 && (seen & (1 << digit)) != 0)
+						return true;
+					seen |= 1 << digit;
+				}
+			}
+		return false;
+	}
+
+	/**
+	 * This method adds the first candidates of a grid. With rows and the best
+	 * first row, they are the column permutations turning one of the rows into
+	 * the best row, with that row chosen; with no rows, they are all the column
+	 * permutations, with no row chosen yet.
+	 *
+	 * The permutations giving the same grid are skipped: when columns hold the
+	 * same givens (for example blank columns), only one order of them is kept
+	 * in each stack, and when two stacks hold the same columns, only one order
+	 * of the two stacks is kept.
+	 *
+	 * @param grid givens, transposed or not
+	 * @param t    1 if the grid is transposed, 0 otherwise
+	 * @param rows bit r is set if row r of the grid can be the first row, 0 for
+	 *             the candidates without a row
+	 * @param best best first row, null if there are no rows
+	 * @param to   list the candidates are added to
+	 */
+	private static void firstCandidates(int[] grid, int t, int rows, int[] best, Candidates to) {
+		int[] same = new int[SIZE]; // first column holding the same givens as each column
+		for (int c = 0; c < SIZE; c++) {
+			same[c] = c;
+			for (int o = 0; o < c && same[c] == c; o++) {
+				int i = 0;
+				while (i < SIZE && grid[i * SIZE + c] == grid[i * SIZE + o])
+					i++;
+				if (i == SIZE)
+					same[c] = o;
+			}
+		}
+
+		long[] contents = new long[BOX]; // sorted columns of each stack
+		int kept = 0;                    // bit st * 6 + p is set if order p of stack st gives new columns
+		for (int st = 0; st < BOX; st++) {
+			int[] sorted = { same[st * BOX], same[st * BOX + 1], same[st * BOX + 2] };
+			Arrays.sort(sorted);
+			contents[st] = (sorted[0] * SIZE + sorted[1]) * SIZE + sorted[2];
+			for (int p = 0; p < PERMS.length; p++)
+				if (!repeated(same, st, p))
+					kept |= 1 << (st * PERMS.length + p);
+		}
+
+		// for each stack st and each position s, the kept orders of its columns
+		// matching the best row at that position
+		int[][] valid = new int[BOX * BOX][PERMS.length];
+		int[] validCount = new int[BOX * BOX];
+		for (int r = (rows == 0) ? -1 : Integer.numberOfTrailingZeros(rows); r < SIZE; r++) {
+			if (r >= 0 && (rows & (1 << r)) == 0)
+				continue;
+			Arrays.fill(validCount, 0);
+			for (int st = 0; st < BOX; st++)
+				for (int p = 0; p < PERMS.length; p++)
+					if ((kept & (1 << (st * PERMS.length + p))) != 0)
+						for (int s = 0; s < BOX; s++)
+							if (best == null || matches(grid, r, st, p, best, s))
+								valid[st * BOX + s][validCount[st * BOX + s]++] = p;
+
+			for (int sp = 0; sp < PERMS.length; sp++) {
+				int[] stacks = PERMS[sp];
+				if ((contents[stacks[0]] == contents[stacks[1]] && stacks[0] > stacks[1])
+						|| (contents[stacks[0]] == contents[stacks[2]] && stacks[0] > stacks[2])
+						|| (contents[stacks[1]] == contents[stacks[2]] && stacks[1] > stacks[2]))
+					continue; // the same grid as the order with these stacks exchanged
+				int[] a = valid[stacks[0] * BOX], b = valid[stacks[1] * BOX + 1], c = valid[stacks[2] * BOX + 2];
+				for (int i = 0; i < validCount[stacks[0] * BOX]; i++)
+					for (int j = 0; j < validCount[stacks[1] * BOX + 1]; j++)
+						for (int l = 0; l < validCount[stacks[2] * BOX + 2]; l++) {
+							int order = ((sp * PERMS.length + a[i]) * PERMS.length + b[j]) * PERMS.length + c[l];
+							if (r < 0)
+								to.add(t | (order << 1), 0, 0);
+							else
+								extend(t | (order << 1), 0, 0, grid, 0, r, to);
+						}
+			}
+			if (r < 0)
+				break;
+		}
+	}
+
+	/**
+	 * This method checks if an order of the columns of a stack gives the same
+	 * columns as an earlier order.
+	 */
+	private static boolean repeated(int[] same, int st, int p) {
+		for (int q = 0; q < p; q++) {
+			int j = 0;
+			while (j < BOX && same[st * BOX + PERMS[q][j]] == same[st * BOX + PERMS[p][j]])
+				j++;
+			if (j == BOX)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method checks if stack st of row r, in column order p, has its givens
+	 * where stack s of the best row has its digits.
+	 */
+	private static boolean matches(int[] grid, int r, int st, int p, int[] best, int s) {
+		for (int j = 0; j < BOX; j++)
+			if ((grid[r * SIZE + st * BOX + PERMS[p][j]] != 0) != (best[s * BOX + j] != 0))
+				return false;
+		return true;
+	}
+
+	/**
+	 * This method adds to a list the candidate extending another one with row r
+	 * as row k of the canonical grid, labelling the digits seen for the first
+	 * time in the row.
+	 */
+	private static void extend(int meta, long rows, long labels, int[] grid, int k, int r, Candidates to) {
+		int[] colOrder = COLUMN_ORDERS[order(meta)];
+		int labelCount = meta >>> 21;
+		for (int c = 0; c < SIZE; c++) {
+			int digit = grid[r * SIZE + colOrder[c]];
+			if (digit != 0 && ((labels >>> (4 * digit)) & 15) == 0)
+				labels |= (long) ++labelCount << (4 * digit);
+		}
+		to.add((meta & 0x1FFFFF) | (1 << (12 + r)) | (labelCount << 21), rows | ((long) r << (4 * k)), labels);
+	}
+
+	/**
+	 * This method returns the column permutation of a candidate, as an index in
+	 * COLUMN_ORDERS.
+	 */
+	private static int order(int meta) {
+		return (meta >>> 1) & 2047;
+	}
+
+	/**
+	 * This method returns the rows that can be chosen as row k of the canonical
+	 * grid: the rows of the unused bands when k starts a band, otherwise the
+	 * unused rows of the band of row k-1.
+	 */
+	private static int allowed(int meta, long rows, int k) {
+		int used = (meta >>> 12) & 511;
+		if (k % BOX != 0)
+			return ~used & (BAND_ROWS << (((int) (rows >>> (4 * (k - 1))) & 15) / BOX * BOX));
+		int allowed = 0;
+		for (int band = 0; band < SIZE; band += BOX)
+			if ((used & (BAND_ROWS << band)) == 0)
+				allowed |= BAND_ROWS << band;
+		return allowed;
+	}
+
+	/**
+	 * This method keeps one candidate of each state. The state of a candidate is
+	 * the rows not chosen yet, seen through its column permutation and its
+	 * labels (the digits without a label keep their own value, above the
+	 * labels); two candidates in the same state give the same rows from then
+	 * on. Symmetric or sparse grids give many candidates that only differ by
+	 * permutations of identical rows or columns (all the blank ones for
+	 * example), which would otherwise multiply at each row.
+	 *
+	 * The states are hashed in an open addressing table, and two states with
+	 * the same hash are compared cell by cell before a candidate is dropped.
+	 * Grids with symmetries give many candidates in different states, so once
+	 * a look finds no equal states the next rows are not looked at.
+	 *
+	 * @return false if every state was different, true otherwise (including
+	 *         when there are too few candidates to look)
+	 */
+	private static boolean distinct(Candidates candidates, int[][] grids) {
+		if (candidates.size <= DISTINCT_MIN)
+			return true;
+
+		int capacity = Integer.highestOneBit(candidates.size) << 2;
+		long[] hashes = new long[capacity];
+		int[] slots = new int[capacity]; // 1 + index of the kept candidate, 0 for an empty slot
+		int[] value = new int[SIZE + 1];
+		int length = SIZE * SIZE + 1;
+		int[] states = new int[length * Math.min(candidates.size, 64)]; // states of the kept candidates
+		int kept = 0;
+		for (int i = 0; i < candidates.size; i++) {
+			if (states.length < (kept + 1) * length)
+				states = Arrays.copyOf(states, 2 * states.length);
+			long hash = state(candidates, i, grids, value, states, kept * length);
+			int slot = (int) hash & (capacity - 1);
+			boolean seen = false;
+			while (!seen && slots[slot] != 0) {
+				int o = (slots[slot] - 1) * length;
+				seen = hashes[slot] == hash && Arrays.equals(states, kept * length, kept * length + length, states, o, o + length);
+				slot = (slot + 1) & (capacity - 1);
+			}
+			if (seen)
+				continue;
+			hashes[slot] = hash;
+			slots[slot] = kept + 1;
+			candidates.move(i, kept++);
+		}
+		boolean merged = kept < candidates.size;
+		candidates.size = kept;
+		return merged;
+	}
+
+	/**
+	 * This method computes the state of a candidate (see distinct()) and its
+	 * hash, written from offset of the array. The rows already chosen are left
+	 * out of the cells, and the set of them goes in the last element of the
+	 * state; the cells left over before it are set to 0.
+	 */
+	private static long state(Candidates candidates, int i, int[][] grids, int[] value, int[] state, int offset) {
+		int meta = candidates.meta[i];
+		int[] grid = grids[meta & 1];
+		int[] colOrder = COLUMN_ORDERS[order(meta)];
+		long labels = candidates.labels[i];
+		for (int d = 1; d <= SIZE; d++) {
+			int label = (int) (labels >>> (4 * d)) & 15;
+			value[d] = (label != 0) ? label : SIZE + d;
+		}
+
+		int used = (meta >>> 12) & 511;
+		long hash = 0xcbf29ce484222325L ^ used;
+		int n = offset;
+		for (int r = 0; r < SIZE; r++) {
+			if ((used & (1 << r)) != 0)
+				continue;
+			for (int c = 0; c < SIZE; c++) {
+				int v = value[grid[r * SIZE + colOrder[c]]];
+				state[n++] = v;
+				hash = (hash ^ v) * 0x100000001b3L;
+			}
+		}
+		Arrays.fill(state, n, offset + SIZE * SIZE, 0);
+		state[offset + SIZE * SIZE] = used;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * This method computes the best first row that row r can give: the stacks in
+	 * decreasing number of givens, the givens first in each stack, labelled in
+	 * order.
+	 */
+	private static void firstRow(int[] grid, int r, int[] row) {
+		int[] count = new int[BOX];
+		for (int c = 0; c < SIZE; c++)
+			if (grid[r * SIZE + c] != 0)
+				count[c / BOX]++;
+		Arrays.sort(count);
+
+		int labels = 0;
+		for (int s = 0; s < BOX; s++)
+			for (int j = 0; j < BOX; j++)
+				row[s * BOX + j] = (j < count[BOX - 1 - s]) ? ++labels : 0;
+	}
+
+	/**
+	 * This method compares two relabelled rows, the blank cells coming after all
+	 * the digits.
+	 */
+	private static int compare(int[] a, int[] b) {
+		for (int i = 0; i < a.length; i++)
+			if (a[i] != b[i])
+				return (a[i] == 0 || (b[i] != 0 && a[i] > b[i])) ? 1 : -1;
+		return 0;
+	}
+
+	/**
+	 * This method relabels a row of the grid with the column permutation and the
+	 * labels of a candidate, and compares it with the best row so far. It stops
+	 * as soon as the row is larger.
+	 *
+	 * @param grid       givens, transposed or not
+	 * @param r          row of the grid
+	 * @param colOrder   column permutation of the candidate
+	 * @param labels     labels of the candidate, 0 for the digits without one
+	 * @param labelCount number of labels of the candidate
+	 * @param row        relabelled row (output)
+	 * @param label      work array for the labels given in the row
+	 * @param best       best row so far, null if there is none yet
+	 * @return negative, 0 or positive if the row is smaller, equal or larger than
+	 *         the best row (the blank cells coming after all the digits)
+	 */
+	private static int relabel(int[] grid, int r, int[] colOrder, int[] labels, int labelCount, int[] row, int[] label,
+			int[] best) {
+		int fresh = 0; // digits labelled in the row
+		int cmp = (best == null) ? -1 : 0;
+		for (int c = 0; c < SIZE; c++) {
+			int digit = grid[r * SIZE + colOrder[c]];
+			int value = labels[digit];
+			if (digit != 0 && value == 0) {
+				if ((fresh & (1 << digit)) == 0) {
+					label[digit] = ++labelCount;
+					fresh |= 1 << digit;
+				}
+				value = label[digit];
+			}
+			row[c] = value;
+			if (cmp == 0 && value != best[c]) {
+				cmp = (value == 0 || (best[c] != 0 && value > best[c])) ? 1 : -1;
+				if (cmp > 0)
+					return cmp;
+			}
+		}
+		return cmp;
+	}
+
+	/**
+	 * This method lists the permutations of the columns that keep the stacks: the
+	 * order of the stacks times the order of the columns in each stack.
+	 */
+	private static int[][] columnOrders() {
+		int[][] orders = new int[6 * 6 * 6 * 6][SIZE];
+		int n = 0;
+		for (int[] stacks : PERMS)
+			for (int[] a : PERMS)
+				for (int[] b : PERMS)
+					for (int[] c : PERMS) {
+						int[][] inStack = { a, b, c };
+						for (int s = 0; s < BOX; s++)
+							for (int j = 0; j < BOX; j++)
+								orders[n][s * BOX + j] = stacks[s] * BOX + inStack[s][j];
+						n++;
+					}
+		return orders;
+	}
+
+	/**
+	 * This method computes a 64 bit hash of the canonical givens (FNV-1a followed
+	 * by the MurmurHash3 finalizer).
+	 */
+	static long hash(int[] cells) {
+		long h = 0xcbf29ce484222325L;
+		for (int value : cells) {
+			h ^= value;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * This method moves a grid of the original layout to the canonical layout,
+	 * for example the solution of the puzzle.
+	 *
+	 * @param grid array of 81 digits in the layout of the original puzzle
+	 * @return array of 81 digits in the canonical layout
+	 */
+	public int[] toCanonical(int[] grid) {
+		int[] out = new int[SIZE * SIZE];
+		for (int r = 0; r < SIZE; r++)
+			for (int c = 0; c < SIZE; c++)
+				out[r * SIZE + c] = label[grid[original(r, c)]];
+		return out;
+	}
+
+	/**
+	 * This method moves a grid of the canonical layout back to the original
+	 * layout, for example a solution of the canonical puzzle.
+	 *
+	 * @param grid array of 81 digits in the canonical layout
+	 * @return array of 81 digits in the layout of the original puzzle
+	 */
+	public int[] fromCanonical(int[] grid) {
+		int[] digit = new int[SIZE + 1];
+		for (int d = 1; d <= SIZE; d++)
+			digit[label[d]] = d;
+
+		int[] out = new int[SIZE * SIZE];
+		for (int r = 0; r < SIZE; r++)
+			for (int c = 0; c < SIZE; c++)
+				out[original(r, c)] = digit[grid[r * SIZE + c]];
+		return out;
+	}
+
+	/**
+	 * This method returns the cell of the original layout moved to a cell of the
+	 * canonical layout.
+	 */
+	private int original(int r, int c) {
+		int row = rowOrder[r];
+		int col = colOrder[c];
+		return transposed ? col * SIZE + row : row * SIZE + col;
+	}
+
+	/**
+	 * This method returns the canonical givens.
+	 *
+	 * @return copy of the 81 canonical digits (0 for blank cells)
+	 */
+	public int[] getCells() {
+		return cells.clone();
+	}
+
+	/**
+	 * This method returns the 64 bit hash of the canonical givens. Equal puzzles
+	 * up to a transform have the same hash.
+	 *
+	 * @return canonical hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof CanonicalForm && Arrays.equals(cells, ((CanonicalForm) other).cells);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(hash);
+	}
+
+	@Override
+	public String toString() {
+		return BatchSolver.format(cells);
+	}
+
+}
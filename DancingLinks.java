@@ -0,0 +1,247 @@
+import java.util.Arrays;
+
+/**
+ * This class implements the Dancing Links (Algorithm X) exact cover engine of
+ * the Sudoku Game. It is used by the SudokuEngine when the rules reach a fixed
+ * point without solving the puzzle.
+ *
+ * The exact cover matrix has 4 * cells columns (cell, row-digit, column-digit
+ * and box-digit constraints, 324 for 9x9) and one row per candidate (cell,
+ * digit), which has 4 nodes. All the links are held in int arrays allocated
+ * once in the constructor for the size of the grid, so a solve does not
+ * allocate anything. Only the candidates still present in the candidate masks
+ * are linked in the matrix.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class DancingLinks implements SearchEngine {
+
+	private final SudokuTopology topology; // layout of the grid
+	private final int size;     // number of digits
+	private final int cells;    // number of cells
+	private final int root;     // index of the root header, after the column headers
+
+	private final int[] left;
+	private final int[] right;
+	private final int[] up;
+	private final int[] down;
+	private final int[] column; // column header of each node
+	private final int[] rowOf;  // candidate (cell * size + digit - 1) of each node
+	private final int[] count;  // number of nodes in each column
+	private final int[] stack;  // node chosen at each level of the search
+	private final int[] first;  // nodes of the first solution found
+
+	private int solutionDepth;  // number of rows in the first solution
+	private long nodeCount;     // number of nodes visited by the last search
+	private int limit;          // number of solutions after which the search stops
+	private int solutions;      // number of solutions found by the search
+
+	/**
+	 * Constructor of the DancingLinks engine for the 9x9 grid.
+	 */
+	public DancingLinks() {
+		this(SudokuTopology.STANDARD);
+	}
+
+	/**
+	 * Constructor of the DancingLinks engine.
+	 *
+	 * @param topology layout of the grid
+	 */
+	public DancingLinks(SudokuTopology topology) {
+		this.topology = topology;
+		this.size = topology.size;
+		this.cells = topology.cells;
+		this.root = 4 * cells;
+
+		int nodes = root + 1 + 4 * cells * size; // headers, root and 4 nodes per candidate
+		left = new int[nodes];
+		right = new int[nodes];
+		up = new int[nodes];
+		down = new int[nodes];
+		column = new int[nodes];
+		rowOf = new int[nodes];
+		count = new int[root];
+		stack = new int[cells];
+		first = new int[cells];
+	}
+
+	/**
+	 * This method solves the puzzle described by the candidate masks. Cells with a
+	 * single candidate are forced, the other cells are searched with Algorithm X.
+	 * If a solution is found, the masks are updated to hold it.
+	 *
+	 * @param candidates array of candidate masks, updated in place on success
+	 * @return true if a solution has been found, false otherwise
+	 */
+	@Override
+	public boolean solve(int[] candidates) {
+		return countSolutions(candidates, 1) > 0;
+	}
+
+	@Override
+	public int countSolutions(int[] candidates, int limit) {
+		build(candidates);
+		nodeCount = 0;
+		solutionDepth = 0;
+		this.limit = limit;
+		solutions = 0;
+		search(0);
+
+		for (int k = 0; k < solutionDepth; k++) {
+			int candidate = rowOf[first[k]];
+			candidates[candidate / size] = 1 << (candidate % size);
+		}
+		return solutions;
+	}
+
+	/**
+	 * This method returns the number of nodes visited by the last search.
+	 *
+	 * @return number of nodes visited
+	 */
+	@Override
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	@Override
+	public SudokuTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * This method links the matrix for the candidates of the puzzle. The nodes are
+	 * reused from the previous solve.
+	 *
+	 * @param candidates array of candidate masks
+	 */
+	private void build(int[] candidates) {
+		for (int c = 0; c <= root; c++) {
+			left[c] = c - 1;
+			right[c] = c + 1;
+			up[c] = c;
+			down[c] = c;
+			column[c] = c;
+		}
+		left[0] = root;
+		right[root] = 0;
+		left[root] = root - 1;
+		Arrays.fill(count, 0);
+
+		int next = root + 1;
+		for (int cell = 0; cell < cells; cell++) {
+			int r = topology.row[cell];
+			int c = topology.col[cell];
+			int b = topology.boxOf[cell];
+			int mask = candidates[cell];
+			for (int d = 0; d < size; d++) {
+				if ((mask & (1 << d)) == 0)
+					continue;
+
+				int first = next;
+				link(next++, cell, first, cell * size + d);
+				link(next++, cells + r * size + d, first, cell * size + d);
+				link(next++, 2 * cells + c * size + d, first, cell * size + d);
+				link(next++, 3 * cells + b * size + d, first, cell * size + d);
+			}
+		}
+	}
+
+	/**
+	 * This method appends a node at the bottom of a column and at the end of the
+	 * row starting at node first.
+	 */
+	private void link(int node, int col, int first, int candidate) {
+		column[node] = col;
+		rowOf[node] = candidate;
+		count[col]++;
+
+		up[node] = up[col];
+		down[node] = col;
+		down[up[col]] = node;
+		up[col] = node;
+
+		if (node == first) {
+			left[node] = node;
+			right[node] = node;
+		} else {
+			left[node] = left[first];
+			right[node] = first;
+			right[left[first]] = node;
+			left[first] = node;
+		}
+	}
+
+	/**
+	 * This method runs Algorithm X, always choosing the column with the fewest
+	 * nodes. Each exact cover of the matrix is counted as a solution.
+	 *
+	 * @param depth number of rows already in the solution
+	 * @return true if limit solutions have been found
+	 */
+	private boolean search(int depth) {
+		if (right[root] == root) {
+			if (++solutions == 1) {
+				System.arraycopy(stack, 0, first, 0, depth);
+				solutionDepth = depth;
+			}
+			return solutions >= limit;
+		}
+
+		int best = right[root];
+		for (int c = right[best]; c != root; c = right[c])
+			if (count[c] < count[best])
+				best = c;
+		if (count[best] == 0)
+			return false;
+
+		cover(best);
+		for (int r = down[best]; r != best; r = down[r]) {
+			nodeCount++;
+			stack[depth] = r;
+			for (int j = right[r]; j != r; j = right[j])
+				cover(column[j]);
+
+			if (search(depth + 1))
+				return true;
+
+			for (int j = left[r]; j != r; j = left[j])
+				uncover(column[j]);
+		}
+		uncover(best);
+
+		return false;
+	}
+
+	/**
+	 * This method removes a column from the header list and all the rows that
+	 * have a node in that column from the other columns.
+	 */
+	private void cover(int c) {
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		for (int i = down[c]; i != c; i = down[i])
+			for (int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				count[column[j]]--;
+			}
+	}
+
+	/**
+	 * This method restores a column removed by cover(), in reverse order.
+	 */
+	private void uncover(int c) {
+		for (int i = up[c]; i != c; i = up[i])
+			for (int j = left[i]; j != i; j = left[j]) {
+				count[column[j]]++;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+
+}
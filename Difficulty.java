@@ -0,0 +1,41 @@
+/**
+ * This enum implements the difficulty tiers of the puzzles, from the hardest
+ * technique needed to solve them. Each tier also gives the weight of one use of
+ * its techniques in the score of a DifficultyRating.
+ * 
+ * EASY: Single Candidate Square only.
+ * MEDIUM: Single Square Candidate.
+ * HARD: Number Claiming or Subsets.
+ * EXPERT: Fish.
+ * EXTREME: the rules get stuck and the puzzle needs the search.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public enum Difficulty {
+
+	EASY("Easy", 1), MEDIUM("Medium", 2), HARD("Hard", 10), EXPERT("Expert", 25), EXTREME("Extreme", 100);
+
+	private final String label; // name shown in the status console
+	private final int weight;   // score of one use of a technique of the tier, or of one search node
+
+	private Difficulty(String label, int weight) {
+		this.label = label;
+		this.weight = weight;
+	}
+
+	/**
+	 * This method returns the score of one use of a technique of the tier.
+	 * 
+	 * @return weight of the tier
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+}
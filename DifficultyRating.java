@@ -0,0 +1,113 @@
+/**
+ * This class implements the difficulty rating of a puzzle, computed by the
+ * SudokuEngine from the trace of its last solve: how many times each Technique
+ * removed candidates and how many nodes the search visited. There is no second
+ * pass over the puzzle, so rating a puzzle costs no more than solving it.
+ *
+ * The tier is the Difficulty of the hardest technique used, or EXTREME if the
+ * search was needed. The score adds the weight of the tier of each technique
+ * for each of its uses, and the weight of EXTREME for each node of the search,
+ * so it orders the puzzles inside a tier. The counts come from the
+ * RuleScheduler, which always goes back to the cheapest rule after any
+ * progress, so the harder techniques are only used when the easier ones are
+ * stuck.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class DifficultyRating {
+
+	private final int[] uses;       // number of uses of each Technique, by ordinal
+	private final long guesses;     // nodes visited by the search
+	private final Difficulty tier;  // Difficulty of the hardest technique used
+	private final long score;       // weighted sum of the uses and the nodes
+
+	/**
+	 * Constructor of the DifficultyRating.
+	 *
+	 * @param uses    number of uses of each Technique, by ordinal
+	 * @param guesses number of nodes visited by the search, 0 if the rules solved
+	 *                the puzzle
+	 */
+	public DifficultyRating(int[] uses, long guesses) {
+		this.uses = uses.clone();
+		this.guesses = guesses;
+
+		Difficulty hardest = Difficulty.EASY;
+		long total = 0;
+		for (Technique technique : Technique.values()) {
+			int n = uses[technique.ordinal()];
+			if (n == 0)
+				continue;
+			total += (long) n * technique.getDifficulty().getWeight();
+			if (technique.getDifficulty().compareTo(hardest) > 0)
+				hardest = technique.getDifficulty();
+		}
+		if (guesses > 0) {
+			total += guesses * Difficulty.EXTREME.getWeight();
+			hardest = Difficulty.EXTREME;
+		}
+		this.tier = hardest;
+		this.score = total;
+	}
+
+	/**
+	 * This method returns the tier of the puzzle.
+	 *
+	 * @return Difficulty of the hardest technique used
+	 */
+	public Difficulty getTier() {
+		return tier;
+	}
+
+	/**
+	 * This method returns the score of the puzzle.
+	 *
+	 * @return weighted sum of the uses of the techniques and of the search nodes
+	 */
+	public long getScore() {
+		return score;
+	}
+
+	/**
+	 * This method returns the number of times a technique removed candidates.
+	 *
+	 * @param technique one of the techniques of the engine
+	 * @return number of uses
+	 */
+	public int getUses(Technique technique) {
+		return uses[technique.ordinal()];
+	}
+
+	/**
+	 * This method returns the number of nodes visited by the search.
+	 *
+	 * @return number of guesses, 0 if the rules solved the puzzle
+	 */
+	public long getGuesses() {
+		return guesses;
+	}
+
+	/**
+	 * This method describes the techniques used, for example
+	 * "Single Candidate Square x12, Fish x1, Search x4".
+	 *
+	 * @return uses of each technique and of the search
+	 */
+	public String describeUses() {
+		StringBuilder text = new StringBuilder();
+		for (Technique technique : Technique.values())
+			if (uses[technique.ordinal()] > 0)
+				text.append(text.length() == 0 ? "" : ", ").append(technique.getName()).append(" x")
+						.append(uses[technique.ordinal()]);
+		if (guesses > 0)
+			text.append(text.length() == 0 ? "" : ", ").append("Search x").append(guesses);
+		return text.toString();
+	}
+
+	@Override
+	public String toString() {
+		return tier + " (" + score + ")";
+	}
+
+}
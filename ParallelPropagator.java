@@ -0,0 +1,163 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements the parallel propagation of the rules for the large
+ * grids (16x16 and 25x25), where a single run of a rule over all the units is
+ * enough work to be shared between several cores.
+ *
+ * The Single Candidate Square rule follows the queue of placements and stays
+ * serial. Each of the other rules is applied in rounds: the grid is split in
+ * slices (ranges of units, intersections or digits, see SliceableRule and
+ * Technique.isSliceable()), each slice gets a scratch SudokuEngine holding a
+ * snapshot of the candidates and applies the rule to its range on a
+ * ForkJoinPool, and then the eliminations of all the slices are merged into the
+ * engine. Every elimination found on the snapshot is still valid after the
+ * others, so the merge is sound; two slices placing different digits in the
+ * same cell make the puzzle inconsistent, as it is.
+ *
+ * Like the RuleScheduler, after any progress the next round starts again from
+ * the cheapest rule, and a rule is skipped when no cell changed since its
+ * previous round. The rounds are recorded in the RuleMetrics and as
+ * SolverPhaseEvents of the rules.
+ *
+ * The number of slices is set with SudokuEngine.setParallelism() or with the
+ * sudoku.parallelism system property. The slices of all the engines run on a
+ * single shared ForkJoinPool of one thread per core, created on first use.
+ * Its threads are daemons, so it never has to be shut down, and engines
+ * created by the BatchSolver workers or by each run of the GUI do not add
+ * pools of their own.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class ParallelPropagator {
+
+	/** system property holding the number of threads used for the large grids */
+	static final String PROPERTY = "sudoku.parallelism";
+
+	/** smallest grid size using the sudoku.parallelism system property */
+	static final int MIN_SIZE = 16;
+
+	private static final Technique[] ROUNDS = { Technique.HIDDEN_SINGLES, Technique.NUMBER_CLAIMING,
+			Technique.SUBSETS, Technique.FISH }; // rules applied in slices, cheapest first
+
+	private final SudokuEngine[] workers;  // scratch engine of each slice
+	private final long[] lastRound = new long[ROUNDS.length]; // stamp of the engine at the previous round of each rule
+	private final RuleMetrics[] metrics = new RuleMetrics[ROUNDS.length]; // JMX metrics of each rule
+
+	/**
+	 * This class holds the pool shared by all the ParallelPropagators, created
+	 * when the first one applies a rule.
+	 */
+	private static final class Shared {
+		static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of the ParallelPropagator.
+	 *
+	 * @param topology layout of the grid
+	 * @param threads  number of slices, applied at the same time when the pool
+	 *                 has enough threads
+	 */
+	public ParallelPropagator(SudokuTopology topology, int threads) {
+		this.workers = new SudokuEngine[threads];
+		for (int i = 0; i < threads; i++)
+			workers[i] = new SudokuEngine(topology, null);
+		for (int i = 0; i < ROUNDS.length; i++) {
+			lastRound[i] = -1;
+			metrics[i] = SolverMetrics.get().rule(ROUNDS[i].getName());
+		}
+	}
+
+	/**
+	 * This method applies the rules until none of them makes progress, the puzzle
+	 * is solved or an inconsistency is found.
+	 *
+	 * @param engine engine holding the candidates
+	 * @return status of the puzzle at the fixed point
+	 */
+	public SolverStatus propagate(SudokuEngine engine) {
+		while (engine.status() == SolverStatus.STUCK) {
+			if (engine.updateCandidates()) {
+				engine.ruleFired(Technique.SINGLES);
+				continue;
+			}
+
+			boolean changed = false;
+			for (int i = 0; i < ROUNDS.length && !changed; i++)
+				changed = round(engine, i);
+			if (!changed)
+				break;
+		}
+		return engine.status();
+	}
+
+	/**
+	 * This method applies one rule to all the slices in parallel and merges their
+	 * eliminations into the engine.
+	 *
+	 * @param engine engine holding the candidates
+	 * @param rule   index of the rule in ROUNDS
+	 * @return true if any candidate has been removed
+	 */
+	private boolean round(SudokuEngine engine, int rule) {
+		long since = lastRound[rule];
+		if (since >= engine.getStamp())
+			return false; // nothing changed since the previous round
+
+		SolverPhaseEvent event = new SolverPhaseEvent();
+		event.begin();
+		long start = System.nanoTime();
+		lastRound[rule] = engine.getStamp();
+		Shared.POOL.invoke(new SliceTask(engine, ROUNDS[rule].getSlicing(), since, 0, workers.length));
+
+		boolean changed = false;
+		for (SudokuEngine worker : workers)
+			changed |= engine.merge(worker);
+		if (changed)
+			engine.ruleFired(ROUNDS[rule]);
+
+		metrics[rule].record(changed, System.nanoTime() - start);
+		event.finish(ROUNDS[rule].getName(), changed);
+		return changed;
+	}
+
+	/**
+	 * This class implements the task applying a rule to a range of slices. Ranges
+	 * of more than one slice are split in two halves.
+	 */
+	private class SliceTask extends RecursiveAction {
+
+		private final SudokuEngine engine; // engine holding the candidates
+		private final SliceableRule rule;  // rule being applied
+		private final long since;          // stamp of the previous round of the rule
+		private final int from;            // first slice of the range
+		private final int to;              // end of the range (exclusive)
+
+		SliceTask(SudokuEngine engine, SliceableRule rule, long since, int from, int to) {
+			this.engine = engine;
+			this.rule = rule;
+			this.since = since;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SliceTask(engine, rule, since, from, middle),
+						new SliceTask(engine, rule, since, middle, to));
+				return;
+			}
+
+			SudokuEngine worker = workers[from];
+			worker.copyFrom(engine);
+			rule.applySlice(worker, since, from, workers.length);
+		}
+
+	}
+
+}
@@ -0,0 +1,283 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This class implements the binary format of the puzzle files, for corpora
+ * too large to be parsed line by line, and the reader of that format.
+ *
+ * A corpus file starts with a header of HEADER bytes: a magic number, the
+ * version, the grid size, the bits per cell and the number of puzzles. The
+ * puzzles follow as fixed size records, so puzzle i is at HEADER + i x record
+ * size. The 9x9 cells take 4 bits each (0 for blank cells, two cells per
+ * byte, 41 bytes per puzzle); the digits of the 16x16 and 25x25 grids do not
+ * fit in 4 bits and take a byte each. All the puzzles of a corpus have the
+ * same size.
+ *
+ * The reader maps the file in memory and decodes each record straight into
+ * the array of the solver, so nothing is parsed and only the pages of the
+ * puzzles being read are loaded. The corpus is a read only List of puzzles,
+ * which the BatchSolver solves like the puzzles of a text file; each get()
+ * decodes a new array, and read() decodes into an array of the caller.
+ *
+ * Usage: java PuzzleCorpus input output
+ *
+ * converts a text puzzle file (any format of SudokuFileReader.readPuzzles())
+ * into a corpus file, or a corpus file back into one puzzle per line.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class PuzzleCorpus extends AbstractList<int[]> implements RandomAccess, AutoCloseable {
+
+	private static final int MAGIC = 0x42444B53;  // "SKDB" in little endian
+	private static final int VERSION = 1;         // version of the format
+	private static final int HEADER = 16;         // bytes of the header
+	private static final int CHUNK = 1 << 30;     // largest mapped buffer, in bytes
+
+	private final FileChannel channel;            // channel of the mapped file
+	private final MappedByteBuffer[] chunks;      // mapped records, CHUNK bytes at most each
+	private final int perChunk;                   // records in each chunk
+	private final int size;                       // number of rows of the grids
+	private final int cells;                      // cells of a puzzle
+	private final int bits;                       // bits per cell, 4 or 8
+	private final int record;                     // bytes of a record
+	private final int count;                      // number of puzzles
+
+	/**
+	 * Constructor of the PuzzleCorpus. It maps a corpus file for reading.
+	 *
+	 * @param file corpus file
+	 * @throws IOException if the file cannot be read or is not a corpus
+	 */
+	public PuzzleCorpus(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0)
+				;
+			if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getShort(4) != VERSION)
+				throw new IOException("Not a puzzle corpus: " + file);
+
+			size = header.get(6);
+			bits = header.get(7);
+			count = header.getInt(8);
+			if (bits != bitsOf(SudokuTopology.ofSize(size).size) || count < 0)
+				throw new IOException("Not a puzzle corpus: " + file);
+			cells = size * size;
+			record = recordOf(cells, bits);
+			if (channel.size() != HEADER + (long) count * record)
+				throw new IOException("Truncated puzzle corpus: " + file);
+
+			perChunk = CHUNK / record;
+			chunks = new MappedByteBuffer[(count + perChunk - 1) / perChunk];
+			for (int c = 0; c < chunks.length; c++) {
+				long start = HEADER + (long) c * perChunk * record;
+				long length = (long) Math.min(perChunk, count - c * perChunk) * record;
+				chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			channel.close();
+			throw (e instanceof IOException) ? (IOException) e : new IOException("Not a puzzle corpus: " + file);
+		}
+	}
+
+	/**
+	 * This method decodes a puzzle into an array of the caller.
+	 *
+	 * @param index index of the puzzle
+	 * @param grid  array of size x size cells to be filled (0 for blank cells)
+	 */
+	public void read(int index, int[] grid) {
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("Puzzle " + index + " of " + count);
+
+		MappedByteBuffer chunk = chunks[index / perChunk];
+		int offset = (index % perChunk) * record;
+		if (bits == 8) {
+			for (int i = 0; i < cells; i++)
+				grid[i] = chunk.get(offset + i);
+			return;
+		}
+		for (int i = 0; i + 1 < cells; i += 2) {
+			int packed = chunk.get(offset + (i >> 1));
+			grid[i] = packed & 0xF;
+			grid[i + 1] = (packed >> 4) & 0xF;
+		}
+		if ((cells & 1) != 0)
+			grid[cells - 1] = chunk.get(offset + (cells >> 1)) & 0xF;
+	}
+
+	@Override
+	public int[] get(int index) {
+		int[] grid = new int[cells];
+		read(index, grid);
+		return grid;
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * This method returns the number of rows of the grids of the corpus.
+	 *
+	 * @return 9, 16 or 25
+	 */
+	public int getGridSize() {
+		return size;
+	}
+
+	/**
+	 * This method closes the file. The mapped records stay readable until they
+	 * are garbage collected.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * This method checks if a file starts with the magic number of a corpus.
+	 *
+	 * @param file file to be checked
+	 * @return true if the file is a corpus file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isCorpus(File file) throws IOException {
+		if (file.length() < HEADER)
+			return false;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return Integer.reverseBytes(in.readInt()) == MAGIC;
+		}
+	}
+
+	/**
+	 * This method writes puzzles in a corpus file.
+	 *
+	 * @param puzzles puzzles of the same size, each one an array of size x size
+	 *                digits (0 for blank cells)
+	 * @param output  file to be written
+	 * @throws IOException if the file cannot be written or the puzzles do not all
+	 *                     have the same size
+	 */
+	public static void write(List<int[]> puzzles, File output) throws IOException {
+		int cells = puzzles.isEmpty() ? 81 : puzzles.get(0).length;
+		SudokuTopology topology = SudokuTopology.ofCells(cells);
+		int bits = bitsOf(topology.size);
+		byte[] packed = new byte[recordOf(cells, bits)];
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), 1 << 16)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putShort((short) VERSION).put((byte) topology.size).put((byte) bits)
+					.putInt(puzzles.size());
+			out.write(header.array());
+
+			for (int p = 0; p < puzzles.size(); p++) {
+				int[] puzzle = puzzles.get(p);
+				if (puzzle.length != cells)
+					throw new IOException("Puzzle " + (p + 1) + " has " + puzzle.length + " cells, expected " + cells);
+				pack(puzzle, bits, packed, 0);
+				out.write(packed);
+			}
+		}
+	}
+
+	/**
+	 * This method packs a grid in a record, the way it is written in a corpus.
+	 * The BatchSolver also keeps its solutions in such records.
+	 *
+	 * @param grid   array of cells (0 for blank cells)
+	 * @param bits   bits per cell, 4 or 8
+	 * @param out    array receiving the record
+	 * @param offset offset of the record in the array
+	 */
+	static void pack(int[] grid, int bits, byte[] out, int offset) {
+		if (bits == 8) {
+			for (int i = 0; i < grid.length; i++)
+				out[offset + i] = (byte) grid[i];
+			return;
+		}
+		Arrays.fill(out, offset, offset + recordOf(grid.length, bits), (byte) 0);
+		for (int i = 0; i < grid.length; i++)
+			out[offset + (i >> 1)] |= grid[i] << ((i & 1) << 2);
+	}
+
+	/**
+	 * This method unpacks a record written by pack().
+	 *
+	 * @param in     array holding the record
+	 * @param offset offset of the record in the array
+	 * @param bits   bits per cell, 4 or 8
+	 * @param grid   array of cells to be filled (0 for blank cells)
+	 */
+	static void unpack(byte[] in, int offset, int bits, int[] grid) {
+		for (int i = 0; i < grid.length; i++)
+			grid[i] = (bits == 8) ? in[offset + i] : (in[offset + (i >> 1)] >> ((i & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * This method returns the bits of a cell for a grid size: 4 if the digits
+	 * and the blank fit in them.
+	 */
+	static int bitsOf(int size) {
+		return (size < 16) ? 4 : 8;
+	}
+
+	/**
+	 * This method returns the bytes of a record.
+	 */
+	static int recordOf(int cells, int bits) {
+		return (cells * bits + 7) / 8;
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length != 2) {
+			System.err.println("Usage: java PuzzleCorpus input output");
+			System.exit(1);
+		}
+
+		try {
+			File input = new File(args[0]);
+			long startTime = System.nanoTime();
+			if (isCorpus(input)) {
+				try (PuzzleCorpus corpus = new PuzzleCorpus(input);
+						BufferedWriter bw = new BufferedWriter(new FileWriter(args[1]))) {
+					for (int[] puzzle : corpus) {
+						bw.write(BatchSolver.format(puzzle));
+						bw.newLine();
+					}
+					System.out.printf("Wrote %d puzzles in %.3f s%n", corpus.size(), (System.nanoTime() - startTime) / 1e9);
+				}
+			} else {
+				List<int[]> puzzles = SudokuFileReader.readPuzzles(input);
+				write(puzzles, new File(args[1]));
+				System.out.printf("Converted %d puzzles in %.3f s%n", puzzles.size(), (System.nanoTime() - startTime) / 1e9);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
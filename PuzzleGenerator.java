@@ -0,0 +1,274 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements the generator of the Sudoku Game. It produces puzzles
+ * with a unique solution and writes one puzzle per line in the output file, in
+ * the one line format read by the SudokuFileReader ('.' for blank cells).
+ *
+ * Each puzzle is made in two steps:
+ * - a random complete grid: the boxes on the main diagonal do not share any
+ * unit, so they are filled with random permutations of the digits and the
+ * search engine completes the grid;
+ * - the removal of the clues: the orbits of the chosen Symmetry are visited in
+ * random order, and the cells of each orbit are removed unless the puzzle then
+ * has more than one solution. The puzzle had a single solution, the complete
+ * grid, before the orbit was removed, so any other solution holds another
+ * digit in one of the cells of the orbit. Uniqueness is checked by searching
+ * for such a solution with SudokuEngine.countSolutionsWithout(), one cell at a
+ * time, using the BacktrackingSearch, which is the faster engine for counting
+ * (its setup is a copy of the candidates while the DancingLinks links its
+ * whole matrix). Each search stops at the first solution, and the digit
+ * removed from the cell prunes it much more than a count of two solutions of
+ * the puzzle. On the 16x16 and 25x25 grids the rules are propagated before
+ * each search (see SudokuEngine.countSolutions()).
+ *
+ * Each search gives up after NODES nodes, and an orbit whose search gave up is
+ * kept: the puzzle still has a unique solution, but it may not be minimal. The
+ * searches of the 9x9 grids stay far below the bound and those of the 16x16
+ * grids rarely reach it, so their puzzles are minimal for the symmetry
+ * (removing any other orbit gives a puzzle with several solutions); the
+ * sparse 25x25 grids lead to searches of millions of nodes, which the bound
+ * cuts off. The bound also restarts the
+ * completion of a random grid that takes too long, with new permutations.
+ *
+ * The puzzles are generated on a ForkJoinPool (work stealing) using all the
+ * cores by default. Each worker thread keeps its own SudokuEngine, and puzzle i
+ * uses its own random generator seeded from the seed and i, so the output only
+ * depends on the seed, not on the number of threads.
+ *
+ * Usage: java PuzzleGenerator [-threads n] [-size n] [-symmetry name] [-seed n] count output
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class PuzzleGenerator {
+
+	private static final int THRESHOLD = 16; // puzzles generated by a task without splitting it
+	private static final long NODES = 20000; // nodes of a search before it gives up
+
+	private final SudokuTopology topology;  // layout of the generated grids
+	private final Symmetry symmetry;        // symmetry kept by the givens
+	private final int[][] orbits;           // cells removed together
+	private final ForkJoinPool pool;        // work stealing pool generating the puzzles
+	private final ThreadLocal<SudokuEngine> engines; // counting engine of each worker thread
+	private long seed;                      // seed of the first puzzle
+	private int[][] puzzles;                // generated puzzles, in order
+
+	/**
+	 * Constructor of the PuzzleGenerator.
+	 *
+	 * @param topology layout of the generated grids
+	 * @param symmetry symmetry kept by the givens
+	 * @param threads  number of worker threads
+	 */
+	public PuzzleGenerator(SudokuTopology topology, Symmetry symmetry, int threads) {
+		this.topology = topology;
+		this.symmetry = symmetry;
+		this.orbits = symmetry.orbits(topology);
+		this.pool = new ForkJoinPool(threads);
+		this.engines = ThreadLocal.withInitial(() -> {
+			BacktrackingSearch search = new BacktrackingSearch(topology);
+			search.setNodeLimit(NODES);
+			return new SudokuEngine(search);
+		});
+	}
+
+	/**
+	 * This method generates puzzles on the pool and waits for the results.
+	 *
+	 * @param count number of puzzles
+	 * @param seed  seed of the random generators
+	 * @return the puzzles, each one an array of size x size digits (0 for blank cells)
+	 */
+	public int[][] generateAll(int count, long seed) {
+		this.seed = seed;
+		puzzles = new int[count][];
+		pool.invoke(new GenerateTask(0, count));
+		return puzzles;
+	}
+
+	/**
+	 * This method stops the worker threads of the pool.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * This class implements the task generating a range of puzzles. Large ranges
+	 * are split in two halves so idle workers can steal them.
+	 */
+	private class GenerateTask extends RecursiveAction {
+
+		private final int from; // first puzzle of the range
+		private final int to;   // end of the range (exclusive)
+
+		GenerateTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new GenerateTask(from, middle), new GenerateTask(middle, to));
+				return;
+			}
+
+			SudokuEngine engine = engines.get();
+			for (int i = from; i < to; i++)
+				puzzles[i] = generate(engine, new SplittableRandom(seed + i));
+		}
+
+	}
+
+	/**
+	 * This method generates one puzzle with a unique solution.
+	 *
+	 * @param engine engine used to complete the grid and count the solutions
+	 * @param random random generator of the puzzle
+	 * @return array of size x size digits (0 for blank cells)
+	 */
+	int[] generate(SudokuEngine engine, SplittableRandom random) {
+		int[] grid = randomGrid(engine, random);
+		int[] puzzle = grid.clone();
+
+		int[] order = new int[orbits.length];
+		shuffle(order, random);
+		for (int o : order) {
+			int[] orbit = orbits[o];
+			for (int k = 0; k < orbit.length; k++)
+				puzzle[orbit[k]] = 0;
+
+			// the cells of the orbit are given back one by one, so search k looks
+			// for the solutions with a new digit in cell k and the grid's digits in
+			// the cells before it
+			boolean unique = true;
+			for (int k = 0; k < orbit.length; k++) {
+				int cell = orbit[k];
+				unique = unique && engine.countSolutionsWithout(puzzle, cell, grid[cell], 1) == 0
+						&& engine.getGuesses() <= NODES;
+				puzzle[cell] = grid[cell];
+			}
+			if (unique)
+				for (int k = 0; k < orbit.length; k++)
+					puzzle[orbit[k]] = 0;
+		}
+		return puzzle;
+	}
+
+	/**
+	 * This method fills a random complete grid. The boxes on the main diagonal get
+	 * random permutations of the digits and the engine solves the rest of the
+	 * grid, with new permutations if they cannot be completed.
+	 *
+	 * @param engine engine completing the grid
+	 * @param random random generator of the puzzle
+	 * @return array of size x size digits
+	 */
+	private int[] randomGrid(SudokuEngine engine, SplittableRandom random) {
+		int[] grid = new int[topology.cells];
+		int[] digits = new int[topology.size];
+		do {
+			for (int b = 0; b < topology.box; b++) {
+				shuffle(digits, random);
+				int[] cells = topology.unit[2 * topology.size + b * (topology.box + 1)];
+				for (int k = 0; k < cells.length; k++)
+					grid[cells[k]] = digits[k] + 1;
+			}
+		} while (!engine.solve(grid));
+		engine.getSolution(grid);
+		return grid;
+	}
+
+	/**
+	 * This method fills an array with a random permutation of 0 to length-1
+	 * (Fisher-Yates shuffle).
+	 *
+	 * @param values array to be filled
+	 * @param random random generator of the puzzle
+	 */
+	private static void shuffle(int[] values, SplittableRandom random) {
+		for (int i = 0; i < values.length; i++) {
+			int j = random.nextInt(i + 1);
+			values[i] = values[j];
+			values[j] = i;
+		}
+	}
+
+	/**
+	 * This method writes one puzzle per line in the output file.
+	 *
+	 * @param puzzles puzzles returned by generateAll()
+	 * @param output  file to be written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(int[][] puzzles, File output) throws IOException {
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(output))) {
+			for (int[] puzzle : puzzles) {
+				bw.write(BatchSolver.format(puzzle));
+				bw.newLine();
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		int size = 9;
+		Symmetry symmetry = Symmetry.ROTATIONAL;
+		long seed = System.nanoTime();
+		int arg = 0;
+		try {
+			for (; arg + 2 < args.length && args[arg].startsWith("-"); arg += 2) {
+				if (args[arg].equals("-threads"))
+					threads = Integer.parseInt(args[arg + 1]);
+				else if (args[arg].equals("-size"))
+					size = Integer.parseInt(args[arg + 1]);
+				else if (args[arg].equals("-symmetry"))
+					symmetry = Symmetry.forName(args[arg + 1]);
+				else if (args[arg].equals("-seed"))
+					seed = Long.parseLong(args[arg + 1]);
+				else
+					throw new IllegalArgumentException("Unknown option: " + args[arg]);
+			}
+			if (args.length != arg + 2)
+				throw new IllegalArgumentException(
+						"Usage: java PuzzleGenerator [-threads n] [-size n] [-symmetry name] [-seed n] count output");
+
+			if (size != 9 && size != 16 && size != 25)
+				throw new IllegalArgumentException("Grid size must be 9, 16 or 25: " + size);
+
+			int count = Integer.parseInt(args[arg]);
+			PuzzleGenerator generator = new PuzzleGenerator(SudokuTopology.ofSize(size), symmetry, threads);
+			long startTime = System.nanoTime();
+			int[][] puzzles = generator.generateAll(count, seed);
+			long totalTime = System.nanoTime() - startTime;
+			generator.shutdown();
+
+			write(puzzles, new File(args[arg + 1]));
+
+			long clues = 0;
+			for (int[] puzzle : puzzles)
+				for (int digit : puzzle)
+					if (digit != 0)
+						clues++;
+			double seconds = totalTime / 1e9;
+			System.out.printf("Generated %d puzzles (%.1f clues on average) in %.3f s (%.1f puzzles/second)%n", count,
+					(double) clues / Math.max(1, count), seconds, count / seconds);
+
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+}
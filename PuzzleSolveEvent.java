@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class implements the Java Flight Recorder event emitted for each puzzle
+ * solved by a SudokuEngine, from the load of the givens to the final status.
+ * It records the search engine used, the number of rules that removed
+ * candidates and the number of guesses (nodes of the search), so the slow
+ * puzzles of a batch can be found in a recording.
+ * 
+ * Like the SolverPhaseEvent it is disabled by default and enabled with the
+ * sudoku.jfc settings file. In the GUI the duration also holds the pauses of
+ * the STEP and ANIMATED modes.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+@Name("sudoku.PuzzleSolve")
+@Label("Puzzle Solve")
+@Category("Sudoku")
+@Description("Solve of one puzzle by a SudokuEngine")
+@Enabled(false)
+@StackTrace(false)
+public class PuzzleSolveEvent extends jdk.jfr.Event {
+
+	@Label("Search Engine")
+	String engine;      // class of the search engine
+
+	@Label("Status")
+	String status;      // SOLVED, STUCK or INCONSISTENT
+
+	@Label("Rules Fired")
+	int rulesFired;     // rule steps that removed candidates
+
+	@Label("Guesses")
+	long guesses;       // nodes visited by the search, 0 if the rules solved the puzzle
+
+	@Label("Eliminations")
+	long eliminations;  // candidates removed
+
+	/**
+	 * This method ends the event and commits it with the statistics of the
+	 * engine if it is enabled and above its threshold.
+	 * 
+	 * @param solver engine that solved the puzzle
+	 */
+	void finish(SudokuEngine solver) {
+		if (shouldCommit()) {
+			engine = solver.getSearchEngine().getClass().getSimpleName();
+			status = solver.status().name();
+			rulesFired = solver.getRulesFired();
+			guesses = solver.getGuesses();
+			eliminations = solver.getEliminations();
+			commit();
+		}
+	}
+
+}
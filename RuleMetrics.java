@@ -0,0 +1,64 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements the metrics of one rule (or phase) of the solver:
+ * number of runs, number of runs that removed candidates and cumulative time.
+ * 
+ * The counters are LongAdders, which spread the updates of concurrent threads
+ * over several cells, so the BatchSolver workers can update them without
+ * contending on a single counter.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class RuleMetrics implements RuleMetricsMBean {
+
+	private final String name;                  // name of the rule
+	private final LongAdder runs = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	RuleMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * This method records one run of the rule.
+	 * 
+	 * @param hit   true if the run removed candidates
+	 * @param nanos time spent in the run, in nanoseconds
+	 */
+	public void record(boolean hit, long nanos) {
+		runs.increment();
+		if (hit)
+			hits.increment();
+		this.nanos.add(nanos);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getRuns() {
+		return runs.sum();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getNanos() {
+		return nanos.sum();
+	}
+
+	void reset() {
+		runs.reset();
+		hits.reset();
+		nanos.reset();
+	}
+
+}
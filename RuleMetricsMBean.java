@@ -0,0 +1,23 @@
+/**
+ * This interface is the JMX management interface of the RuleMetrics.
+ * Each rule is registered as Sudoku:type=RuleMetrics,name=<rule> on the
+ * platform MBean server.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface RuleMetricsMBean {
+
+	/** @return name of the rule */
+	String getName();
+
+	/** @return number of runs of the rule */
+	long getRuns();
+
+	/** @return number of runs of the rule that removed candidates */
+	long getHits();
+
+	/** @return cumulative time spent in the rule, in nanoseconds */
+	long getNanos();
+
+}
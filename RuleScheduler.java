@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class implements the scheduler that decides which rule the
+ * SudokuEngine applies next.
+ *
+ * The rules are kept in order of expected cost per success. Each step tries
+ * the rules in that order and stops at the first one that removes a
+ * candidate, so after any progress the next step starts again from the
+ * cheapest rule. A rule is skipped when no cell has changed since its
+ * previous run, and it only looks at the units changed since then.
+ *
+ * For each rule the scheduler counts the runs and the successes. Every
+ * REORDER_INTERVAL runs the rules are sorted again by cost divided by their
+ * observed success rate, so rules that rarely fire drift to the end of the
+ * order. The statistics are kept across puzzles when the engine is reused.
+ * Each run is also timed and added to the RuleMetrics of the rule in
+ * SolverMetrics, which are shared by all the schedulers of the JVM, and emits
+ * a SolverPhaseEvent when Java Flight Recorder has it enabled.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class RuleScheduler {
+
+	private static final int REORDER_INTERVAL = 1024; // runs between two sorts of the rules
+
+	private final SolverRule[] rules;  // rules in the order they are tried
+	private final long[] lastRun;      // stamp of the engine at the previous run of each rule
+	private final long[] runs;         // number of runs of each rule
+	private final long[] hits;         // number of runs of each rule that removed candidates
+	private final RuleMetrics[] metrics; // JMX metrics of each rule
+	private long runsSinceReorder;     // runs since the last sort of the rules
+
+	/**
+	 * Constructor of the RuleScheduler.
+	 *
+	 * @param rules rules to be applied, in any order
+	 */
+	public RuleScheduler(SolverRule... rules) {
+		this.rules = rules.clone();
+		this.lastRun = new long[rules.length];
+		this.runs = new long[rules.length];
+		this.hits = new long[rules.length];
+		this.metrics = new RuleMetrics[rules.length];
+		for (int i = 0; i < rules.length; i++)
+			metrics[i] = SolverMetrics.get().rule(rules[i].getName());
+		Arrays.fill(lastRun, -1);
+		reorder();
+	}
+
+	/**
+	 * This method applies the rules in order until one of them removes
+	 * candidates.
+	 *
+	 * @param engine engine holding the candidates
+	 * @return the rule that removed candidates, null if none did (fixed point)
+	 */
+	public SolverRule step(SudokuEngine engine) {
+		if (runsSinceReorder >= REORDER_INTERVAL)
+			reorder();
+
+		for (int i = 0; i < rules.length; i++) {
+			long since = lastRun[i];
+			if (since >= engine.getStamp())
+				continue; // nothing changed since the previous run
+
+			lastRun[i] = engine.getStamp();
+			runs[i]++;
+			SolverPhaseEvent event = new SolverPhaseEvent();
+			event.begin();
+			long start = System.nanoTime();
+			boolean hit = rules[i].apply(engine, since);
+			metrics[i].record(hit, System.nanoTime() - start);
+			event.finish(rules[i].getName(), hit);
+			runsSinceReorder++;
+			if (hit) {
+				hits[i]++;
+				return rules[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method applies the rules until none of them makes progress, the puzzle
+	 * is solved or an inconsistency is found.
+	 *
+	 * @param engine engine holding the candidates
+	 * @return status of the puzzle at the fixed point
+	 */
+	public SolverStatus run(SudokuEngine engine) {
+		while (engine.status() == SolverStatus.STUCK && step(engine) != null)
+			;
+		return engine.status();
+	}
+
+	/**
+	 * This method returns the rules in the order they are currently tried.
+	 *
+	 * @return copy of the rules
+	 */
+	public SolverRule[] getRules() {
+		return rules.clone();
+	}
+
+	/**
+	 * This method returns the number of runs of a rule.
+	 *
+	 * @param rule one of the rules of the scheduler
+	 * @return number of runs
+	 */
+	public long getRuns(SolverRule rule) {
+		return runs[indexOf(rule)];
+	}
+
+	/**
+	 * This method returns the number of runs of a rule that removed candidates.
+	 *
+	 * @param rule one of the rules of the scheduler
+	 * @return number of successful runs
+	 */
+	public long getHits(SolverRule rule) {
+		return hits[indexOf(rule)];
+	}
+
+	private int indexOf(SolverRule rule) {
+		for (int i = 0; i < rules.length; i++)
+			if (rules[i] == rule)
+				return i;
+		throw new IllegalArgumentException("Unknown rule: " + rule.getName());
+	}
+
+	/**
+	 * This method sorts the rules by expected cost per success,
+	 * cost * (runs + 2) / (hits + 1), keeping the statistics of each rule with it.
+	 */
+	private void reorder() {
+		Integer[] order = new Integer[rules.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparingDouble(i -> rules[i].getCost() * (runs[i] + 2.0) / (hits[i] + 1.0)));
+
+		SolverRule[] sortedRules = new SolverRule[rules.length];
+		long[] sortedLastRun = new long[rules.length];
+		long[] sortedRuns = new long[rules.length];
+		long[] sortedHits = new long[rules.length];
+		RuleMetrics[] sortedMetrics = new RuleMetrics[rules.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedRules[i] = rules[order[i]];
+			sortedLastRun[i] = lastRun[order[i]];
+			sortedRuns[i] = runs[order[i]];
+			sortedHits[i] = hits[order[i]];
+			sortedMetrics[i] = metrics[order[i]];
+		}
+		System.arraycopy(sortedRules, 0, rules, 0, rules.length);
+		System.arraycopy(sortedLastRun, 0, lastRun, 0, rules.length);
+		System.arraycopy(sortedRuns, 0, runs, 0, rules.length);
+		System.arraycopy(sortedHits, 0, hits, 0, rules.length);
+		System.arraycopy(sortedMetrics, 0, metrics, 0, rules.length);
+		runsSinceReorder = 0;
+	}
+
+}
@@ -0,0 +1,27 @@
+/**
+ * This enum implements the run modes of the solver that the user can choose
+ * before clicking on the RUN button.
+ * 
+ * INSTANT: the solver runs at full speed and the Board is updated once at the end.
+ * STEP: the solver applies one rule and waits for the next click on RUN.
+ * ANIMATED: the solver applies one rule per frame at the chosen frame rate.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public enum RunMode {
+
+	INSTANT("Instant"), STEP("Step"), ANIMATED("Animated");
+
+	private final String label; // name shown in the run mode list
+
+	private RunMode(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+}
@@ -0,0 +1,82 @@
+/**
+ * This interface is implemented by the search engines used by the SudokuEngine
+ * when the rules reach a fixed point without solving the puzzle.
+ * 
+ * The engine is chosen with the system property sudoku.search:
+ * "dlx" for the DancingLinks engine (default) or "backtracking" for the
+ * BacktrackingSearch engine.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface SearchEngine {
+
+	/** system property used to choose the search engine */
+	String PROPERTY = "sudoku.search";
+
+	/**
+	 * This method solves the puzzle described by the candidate masks.
+	 * If a solution is found, the masks are updated to hold it.
+	 * 
+	 * @param candidates array of candidate masks, updated in place on success
+	 * @return true if a solution has been found, false otherwise
+	 */
+	boolean solve(int[] candidates);
+
+	/**
+	 * This method counts the solutions of the puzzle described by the candidate
+	 * masks, stopping as soon as limit solutions are found. If a solution is
+	 * found, the masks are updated to hold the first one, so solve() is a count
+	 * with a limit of 1.
+	 * 
+	 * @param candidates array of candidate masks, updated in place if a solution is found
+	 * @param limit      number of solutions after which the search stops (2 is
+	 *                   enough to check that a puzzle has a unique solution)
+	 * @return number of solutions found, at most limit
+	 */
+	int countSolutions(int[] candidates, int limit);
+
+	/**
+	 * This method returns the number of nodes visited by the last search.
+	 * 
+	 * @return number of nodes visited
+	 */
+	long getNodeCount();
+
+	/**
+	 * This method returns the layout of the grids solved by the engine.
+	 * 
+	 * @return topology of the grid
+	 */
+	SudokuTopology getTopology();
+
+	/**
+	 * This method creates the search engine chosen by the sudoku.search system
+	 * property.
+	 * 
+	 * @param topology layout of the grid
+	 * @return new search engine
+	 */
+	static SearchEngine fromConfiguration(SudokuTopology topology) {
+		return create(System.getProperty(PROPERTY, "dlx"), topology);
+	}
+
+	/**
+	 * This method creates a search engine by its name.
+	 * 
+	 * @param name     "dlx" or "backtracking"
+	 * @param topology layout of the grid
+	 * @return new search engine
+	 */
+	static SearchEngine create(String name, SudokuTopology topology) {
+		switch (name.toLowerCase()) {
+		case "dlx":
+			return new DancingLinks(topology);
+		case "backtracking":
+			return new BacktrackingSearch(topology);
+		default:
+			throw new IllegalArgumentException("Unknown search engine: " + name);
+		}
+	}
+
+}
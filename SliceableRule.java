@@ -0,0 +1,27 @@
+/**
+ * This interface is implemented by the rules that can be applied to one slice
+ * of the grid (a range of units, intersections or digits) at a time, so the
+ * ParallelPropagator runs the slices on several threads.
+ *
+ * The slices of a rule are independent: each one is applied on its own copy of
+ * the engine and the eliminations of all of them are merged afterwards. A rule
+ * that follows a queue, like the Single Candidate Square, cannot be split and
+ * has no SliceableRule (see Technique.isSliceable()).
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface SliceableRule {
+
+	/**
+	 * This method applies the rule on one slice of the grid.
+	 *
+	 * @param engine engine holding the candidates
+	 * @param since  stamp of the engine at the previous run of the rule
+	 * @param slice  index of the slice, from 0 to slices - 1
+	 * @param slices number of slices
+	 * @return true if any candidate has been removed
+	 */
+	boolean applySlice(SudokuEngine engine, long since, int slice, int slices);
+
+}
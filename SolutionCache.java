@@ -0,0 +1,353 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a bounded cache of solutions in front of the solver,
+ * for the puzzles that are solved over and over.
+ *
+ * A 9x9 puzzle is stored under its CanonicalForm with the solution moved to
+ * the canonical layout, so a relabelled, transposed or permuted copy of a
+ * cached puzzle is a hit: its solution is the cached one moved back through
+ * the transform of the copy. Finding the canonical form of a puzzle takes
+ * longer than solving an easy one, so each solution is also stored under the
+ * exact givens it was asked for, and a puzzle seen before costs a hash lookup
+ * and a copy. For the same reason a puzzle missing under its givens is first
+ * propagated by the engine, and only looked up under its canonical form if
+ * the rules leave it to the search and a form has so far cost less than a
+ * search: the puzzles solved by the rules (and so their copies) are only
+ * stored under their givens. A solution found under a canonical form is
+ * checked against the givens before it is used. The puzzles of the other
+ * sizes are only stored under their givens.
+ *
+ * The cache may sit in front of a SolutionIndex: the 9x9 puzzles missing from
+ * memory are looked up in the index, first under their exact givens and then
+ * under their canonical form, before being solved, and the new solutions are
+ * added to it, so they are kept for the next processes.
+ *
+ * The capacity counts puzzles: each one takes one or two entries, which are
+ * spread over STRIPES LinkedHashMaps in access order, each one locked on its
+ * own, so the BatchSolver workers rarely wait for each other. A stripe holds
+ * its share of two entries per puzzle plus some slack, as the keys do not
+ * spread evenly; when it is full its least recently used entry is evicted.
+ * Only the solved puzzles are cached.
+ *
+ * The hits, index hits, misses and evictions are LongAdders, exposed over JMX as
+ * Sudoku:type=SolutionCache.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SolutionCache implements SolutionCacheMBean {
+
+	private static final int STRIPES = 16; // independent LRU maps, a power of 2
+	private static final int SAMPLE = 16;  // one puzzle left to the search in SAMPLE gets its canonical form anyway
+
+	private final int capacity;             // number of puzzles the cache is sized for
+	private final SolutionIndex index;      // persistent index behind the cache, null if none
+	private final Stripe[] stripes = new Stripe[STRIPES]; // LRU maps, chosen by the hash of the key
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder indexHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder stuck = new LongAdder();       // 9x9 puzzles left to the search by the rules
+	private final LongAdder forms = new LongAdder();       // canonical forms computed
+	private final LongAdder formNanos = new LongAdder();   // time spent computing them
+	private final LongAdder searches = new LongAdder();    // 9x9 puzzles solved by the search
+	private final LongAdder searchNanos = new LongAdder(); // time spent searching them
+
+	/**
+	 * Constructor of the SolutionCache.
+	 *
+	 * @param capacity number of puzzles the cache holds
+	 */
+	public SolutionCache(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Constructor of the SolutionCache in front of a persistent index.
+	 *
+	 * @param capacity number of puzzles the cache holds
+	 * @param index    persistent index of the 9x9 solutions, null if none
+	 */
+	public SolutionCache(int capacity, SolutionIndex index) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+
+		this.capacity = capacity;
+		this.index = index;
+		int share = (int) ((2L * capacity + STRIPES - 1) / STRIPES); // entries of a stripe if they spread evenly
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe(share + share / 4 + 4);
+		SolverMetrics.register("type=SolutionCache", this);
+	}
+
+	/**
+	 * This class implements one stripe of the cache, a LinkedHashMap in access
+	 * order evicting its eldest entry when it is full. It is only used while
+	 * holding its lock.
+	 */
+	private class Stripe extends LinkedHashMap<Object, int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int limit; // largest number of entries of the stripe
+
+		Stripe(int limit) {
+			super(16, 0.75f, true);
+			this.limit = limit;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, int[]> eldest) {
+			if (size() <= limit)
+				return false;
+			evictions.increment();
+			return true;
+		}
+
+	}
+
+	/**
+	 * This class implements the key of a puzzle stored under its exact givens.
+	 * The BatchSolver also uses it to find the exact copies before computing
+	 * any canonical form.
+	 */
+	static final class Givens {
+
+		private final int[] cells; // givens (0 for blank cells)
+		private final int hash;    // hash of the givens
+
+		Givens(int[] cells) {
+			this.cells = cells;
+			this.hash = Arrays.hashCode(cells);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Givens && Arrays.equals(cells, ((Givens) other).cells);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+	/**
+	 * This method solves a puzzle, from the cache if it holds the puzzle or a
+	 * copy of it, then from the index, and otherwise with the engine, caching
+	 * the solution.
+	 *
+	 * @param engine   engine solving the puzzles missing from the cache
+	 * @param givens   array of size x size digits (0 for blank cells)
+	 * @param solution array filled with the solution, or with the grid left by
+	 *                 the engine if the puzzle is not solved
+	 * @return SOLVED if the solution has been found, or the status of the engine
+	 */
+	public SolverStatus solve(SudokuEngine engine, int[] givens, int[] solution) {
+		Givens exact = new Givens(givens.clone());
+		int[] cached = get(exact);
+		if (cached != null) {
+			hits.increment();
+			System.arraycopy(cached, 0, solution, 0, solution.length);
+			return SolverStatus.SOLVED;
+		}
+
+		boolean standard = givens.length == SudokuTopology.STANDARD.cells; // 9x9 grid
+		cached = (standard && index != null) ? index.get(givens) : null;
+		if (cached != null) {
+			indexHits.increment();
+			System.arraycopy(cached, 0, solution, 0, solution.length);
+			put(exact, cached);
+			return SolverStatus.SOLVED;
+		}
+
+		// the puzzles solved by the rules cost less than their canonical form, so
+		// only the puzzles left for the search are looked up under it
+		PuzzleSolveEvent event = new PuzzleSolveEvent();
+		event.begin();
+		engine.load(givens);
+		engine.penciling();
+		CanonicalForm form = null;
+		boolean searched = engine.propagate() == SolverStatus.STUCK && standard;
+		if (searched && canonicalPays()) {
+			long start = System.nanoTime();
+			form = CanonicalForm.of(givens);
+			formNanos.add(System.nanoTime() - start);
+			forms.increment();
+			int[] found = canonicalHit(form, givens);
+			if (found != null) {
+				System.arraycopy(found, 0, solution, 0, solution.length);
+				put(exact, found);
+				store(givens, found, null, null);
+				return SolverStatus.SOLVED;
+			}
+		}
+
+		misses.increment();
+		long start = System.nanoTime();
+		engine.search();
+		if (searched) {
+			searchNanos.add(System.nanoTime() - start);
+			searches.increment();
+		}
+		event.finish(engine);
+		engine.reportMetrics();
+		engine.getSolution(solution);
+		if (engine.status() != SolverStatus.SOLVED)
+			return engine.status();
+
+		put(exact, solution.clone());
+		if (form != null) {
+			int[] canonical = form.toCanonical(solution);
+			put(form, canonical);
+			store(givens, solution, form, canonical);
+		} else if (standard)
+			store(givens, solution, null, null);
+		return SolverStatus.SOLVED;
+	}
+
+	/**
+	 * This method decides if a puzzle left to the search is looked up under its
+	 * canonical form: only when computing a form has cost less, on average, than
+	 * searching a puzzle, so a file of distinct easy puzzles is not slowed down
+	 * by forms that never hit. One puzzle in SAMPLE is looked up anyway, which
+	 * keeps the average cost of a form up to date.
+	 */
+	private boolean canonicalPays() {
+		long count = stuck.sum();
+		stuck.increment();
+		if (count % SAMPLE == 0)
+			return true;
+		return (double) formNanos.sum() * searches.sum() < (double) searchNanos.sum() * forms.sum();
+	}
+
+	/**
+	 * This method looks up a puzzle under its canonical form, in memory then in
+	 * the index. The solution found is moved back to the layout of the puzzle
+	 * and only returned if it holds every given: a form that does not give back
+	 * its puzzle must not hand out the solution of another one, nor have it
+	 * stored under the exact givens.
+	 *
+	 * @return the solution in the layout of the givens, or null for a miss
+	 */
+	private int[] canonicalHit(CanonicalForm form, int[] givens) {
+		int[] cached = get(form);
+		if (cached != null) {
+			int[] found = form.fromCanonical(cached);
+			if (agrees(givens, found)) {
+				hits.increment();
+				return found;
+			}
+		}
+
+		int[] found = (index == null) ? null : index.get(form, givens);
+		if (found != null) {
+			indexHits.increment();
+			put(form, form.toCanonical(found));
+		}
+		return found;
+	}
+
+	/**
+	 * This method checks that a solution holds every given of a puzzle.
+	 */
+	private static boolean agrees(int[] givens, int[] solution) {
+		for (int i = 0; i < givens.length; i++)
+			if (givens[i] != 0 && givens[i] != solution[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * This method adds a solution to the index under the exact givens, and
+	 * under the canonical form if one is given. If the index cannot grow the
+	 * solution is still cached in memory, only not kept.
+	 */
+	private void store(int[] givens, int[] solution, CanonicalForm form, int[] canonical) {
+		if (index == null || !index.isWritable())
+			return;
+		try {
+			index.put(givens, solution);
+			if (form != null)
+				index.put(form, canonical);
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * This method returns the stripe holding a key.
+	 */
+	private Stripe stripe(Object key) {
+		int h = key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	private int[] get(Object key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			return stripe.get(key);
+		}
+	}
+
+	private void put(Object key, int[] value) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			stripe.put(key, value);
+		}
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public int getSize() {
+		int size = 0;
+		for (Stripe stripe : stripes)
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		return size;
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getIndexHits() {
+		return indexHits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public void clear() {
+		for (Stripe stripe : stripes)
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		hits.reset();
+		indexHits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+}
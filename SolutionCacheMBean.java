@@ -0,0 +1,31 @@
+/**
+ * This interface is the JMX management interface of the SolutionCache.
+ * It is registered as Sudoku:type=SolutionCache on the platform MBean server.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface SolutionCacheMBean {
+
+	/** @return number of puzzles the cache holds */
+	int getCapacity();
+
+	/** @return number of entries (one or two per puzzle) */
+	int getSize();
+
+	/** @return number of puzzles answered from the cache */
+	long getHits();
+
+	/** @return number of puzzles answered from the persistent index */
+	long getIndexHits();
+
+	/** @return number of puzzles solved by the engine */
+	long getMisses();
+
+	/** @return number of entries evicted to make room for new ones */
+	long getEvictions();
+
+	/** This method removes all the entries and sets the counters back to 0. */
+	void clear();
+
+}
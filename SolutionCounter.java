@@ -0,0 +1,87 @@
+/**
+ * This class implements the counting mode of the Sudoku Game. It reads the
+ * givens from the Board and counts the solutions of the puzzle with
+ * SudokuEngine.countSolutions(), stopping as soon as the limit is reached, so
+ * checking that a puzzle has a unique solution only needs to find a second one.
+ * The result is written in the status console: no solution, a unique solution,
+ * or the number of solutions found.
+ * 
+ * The limit is 2 by default and can be set with the sudoku.countLimit system
+ * property. The Board is not changed.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SolutionCounter implements Runnable {
+
+	/** system property holding the number of solutions after which the count stops */
+	static final String PROPERTY = "sudoku.countLimit";
+
+	private Board board;     // Board of the Sudoku Game
+	private StatusConsole s; // Status Console of the Game
+	private int limit;       // number of solutions after which the count stops
+
+	/**
+	 * Constructor of the SolutionCounter. It uses the limit of the
+	 * sudoku.countLimit system property (2 by default).
+	 * 
+	 * @param board Board of the game
+	 * @param s     Status Console of the game
+	 */
+	public SolutionCounter(Board board, StatusConsole s) {
+		this(board, s, Integer.getInteger(PROPERTY, 2));
+	}
+
+	/**
+	 * Constructor of the SolutionCounter.
+	 * 
+	 * @param board Board of the game
+	 * @param s     Status Console of the game
+	 * @param limit number of solutions after which the count stops, at least 1
+	 */
+	public SolutionCounter(Board board, StatusConsole s, int limit) {
+		if (limit <= 0)
+			throw new IllegalArgumentException("Count limit must be positive: " + limit);
+
+		this.board = board;
+		this.s = s;
+		this.limit = limit;
+	}
+
+	/**
+	 * The thread of the count starts here. It counts the solutions of the puzzle
+	 * on the Board and updates the status console.
+	 */
+	@Override
+	public void run() {
+		s.updateConsole("Counting Solutions");
+		s.getStatusConsole();
+
+		int[] givens = SudokuSolver.readGivens(board.getboardArray());
+		SudokuEngine engine = new SudokuEngine(SudokuTopology.ofCells(givens.length));
+		long startTime = System.nanoTime();
+		int count = engine.countSolutions(givens, limit);
+		long micros = (System.nanoTime() - startTime) / 1000;
+
+		s.updateConsole(describe(count, limit) + " (" + micros + " us)");
+		s.getStatusConsole();
+	}
+
+	/**
+	 * This method describes the result of a count.
+	 * 
+	 * @param count number of solutions returned by countSolutions()
+	 * @param limit limit of the count
+	 * @return text shown in the status console
+	 */
+	static String describe(int count, int limit) {
+		if (count == 0)
+			return "No Solution";
+		if (count == 1)
+			return (limit > 1) ? "Unique Solution" : "At Least 1 Solution";
+		if (count == limit)
+			return "At Least " + count + " Solutions";
+		return count + " Solutions";
+	}
+
+}
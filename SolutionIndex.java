@@ -0,0 +1,409 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class implements a persistent index of solved 9x9 puzzles, so a new
+ * process answers the puzzles solved by the previous ones without solving
+ * them again.
+ *
+ * The index is a file mapped in memory holding an open addressing hash table
+ * with linear probing. The file starts with a header of HEADER bytes (magic
+ * number, number of slots, slot size and number of entries), followed by the
+ * slots. Each slot of SLOT bytes holds a 64 bit key (0 for an empty slot) and
+ * a solution packed in PACKED bytes: the last row is left out, as it holds
+ * the digit missing from each column, and the other 72 digits are packed two
+ * by two in 7 bits (9 x 9 pairs). Only the pages of the slots being probed
+ * are read from the disk, so opening a large index is immediate and it is not
+ * copied on the heap.
+ *
+ * A puzzle is stored under two keys. The key of its exact givens answers the
+ * same puzzle with one probe and an unpack, without computing its canonical
+ * form, which takes longer than solving most puzzles. The key of its
+ * CanonicalForm, with the solution in the canonical layout, answers the
+ * copies of the puzzle (relabelled, transposed, permuted). At 3/4 load a key
+ * takes about 53 bytes of file, so a puzzle stored under both keys takes
+ * about 107 bytes.
+ *
+ * The readers do not lock: the solution of a slot is written before its hash,
+ * which is published with a release write and read with an acquire read (a
+ * VarHandle on the mapped buffer), so a reader seeing a hash also sees its
+ * solution. The entries are only added, never changed. A solution is also
+ * checked against the givens it is looked up for, so two puzzles with the
+ * same 64 bit key give a miss, not a wrong solution.
+ *
+ * A single process may write: it holds a lock on the file. When the table is
+ * 3/4 full the writer rehashes it into a file twice as large and moves it over
+ * the old one; the readers of other processes keep the old table until they
+ * open the index again. The mapped buffer limits the index to MAX_SLOTS slots.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SolutionIndex implements AutoCloseable {
+
+	private static final long MAGIC = 0x5844494B4F445553L; // "SUDOKIDX" in little endian
+	private static final int HEADER = 64;         // bytes of the header
+	private static final int SLOTS_OFFSET = 8;    // offset of the number of slots in the header
+	private static final int SLOT_OFFSET = 12;    // offset of the slot size in the header
+	private static final int COUNT_OFFSET = 16;   // offset of the number of entries in the header
+	private static final int SLOT = 40;           // bytes of a slot, a multiple of 8 for the key
+	private static final int PACKED = 32;         // bytes of a packed solution (36 pairs of 7 bits)
+	private static final int SIZE = 9;            // rows, columns and digits of a 9x9 grid
+	private static final int CELLS = 81;          // cells of a 9x9 solution
+	private static final long EXACT = 0x9E3779B97F4A7C15L; // mixed into the keys of the exact givens
+	private static final int MIN_SLOTS = 1 << 10; // slots of a new index
+	private static final int MAX_SLOTS = 1 << 25; // largest table mapped in one buffer
+
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN); // aligned long access to the mapped buffer
+
+	private final File file;             // file of the index
+	private final boolean writable;      // the index can be written by this process
+	private volatile Table table;        // mapped table, replaced when it grows
+	private FileChannel channel;         // channel of the mapped file
+	private FileLock lock;               // lock of the writer, null for a reader
+
+	/**
+	 * This class implements a mapped table and its number of slots, read
+	 * together by the readers.
+	 */
+	private static final class Table {
+
+		final MappedByteBuffer buffer; // header and slots
+		final int mask;                // number of slots - 1
+
+		Table(MappedByteBuffer buffer, int slots) {
+			this.buffer = buffer;
+			this.mask = slots - 1;
+		}
+
+	}
+
+	/**
+	 * Constructor of the SolutionIndex. A writable index is created if the file
+	 * does not exist.
+	 *
+	 * @param file     file of the index
+	 * @param writable true to add solutions, false to only read them
+	 * @throws IOException if the file cannot be opened, is not an index, or
+	 *                     another process writes it
+	 */
+	public SolutionIndex(File file, boolean writable) throws IOException {
+		this.file = file;
+		this.writable = writable;
+		if (writable && (!file.exists() || file.length() == 0)) {
+			channel = create(file, MIN_SLOTS);
+			lock = lock(channel, file);
+		} else {
+			channel = writable
+					? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+					: FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			if (writable)
+				lock = lock(channel, file);
+		}
+		table = map(channel, writable, file);
+	}
+
+	/**
+	 * This method creates an empty index file.
+	 *
+	 * @return channel of the new file, open for writing
+	 */
+	private static FileChannel create(File file, int slots) throws IOException {
+		FileChannel created = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		MappedByteBuffer buffer = created.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * SLOT);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(0, MAGIC);
+		buffer.putInt(SLOTS_OFFSET, slots);
+		buffer.putInt(SLOT_OFFSET, SLOT);
+		buffer.putLong(COUNT_OFFSET, 0);
+		return created;
+	}
+
+	/**
+	 * This method takes the lock of the writer on an index file.
+	 */
+	private static FileLock lock(FileChannel channel, File file) throws IOException {
+		FileLock taken = channel.tryLock();
+		if (taken == null) {
+			channel.close();
+			throw new IOException("Solution index is written by another process: " + file);
+		}
+		return taken;
+	}
+
+	/**
+	 * This method maps an index file and checks its header.
+	 */
+	private static Table map(FileChannel channel, boolean writable, File file) throws IOException {
+		long size = channel.size();
+		if (size < HEADER)
+			throw new IOException("Not a solution index: " + file);
+
+		MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+				0, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		int slots = buffer.getInt(SLOTS_OFFSET);
+		if (buffer.getLong(0) != MAGIC || buffer.getInt(SLOT_OFFSET) != SLOT || Integer.bitCount(slots) != 1
+				|| slots > MAX_SLOTS || size != HEADER + (long) slots * SLOT)
+			throw new IOException("Not a solution index: " + file);
+		return new Table(buffer, slots);
+	}
+
+	/**
+	 * This method returns the solution of a puzzle stored under its exact givens.
+	 *
+	 * @param givens array of 81 digits (0 for blank cells)
+	 * @return the 81 digits of the solution, or null if the puzzle is not in the
+	 *         index under these givens
+	 */
+	public int[] get(int[] givens) {
+		return get(exactKey(givens), givens);
+	}
+
+	/**
+	 * This method returns the solution of a puzzle stored under its canonical
+	 * form, moved back to the layout of the puzzle. The solution is checked
+	 * against the givens of the puzzle, not only against the canonical cells,
+	 * so a form that does not give back its puzzle is a miss.
+	 *
+	 * @param form   canonical form of the puzzle
+	 * @param givens array of 81 digits of the puzzle (0 for blank cells)
+	 * @return the 81 digits of the solution in the layout of the givens, or null
+	 *         if the puzzle is not in the index
+	 */
+	public int[] get(CanonicalForm form, int[] givens) {
+		int[] solution = get(key(form.getHash()), form.getCells());
+		if (solution == null)
+			return null;
+		solution = form.fromCanonical(solution);
+		return agrees(givens, solution) ? solution : null;
+	}
+
+	/**
+	 * This method probes the table for a key and checks the solution found
+	 * against the givens.
+	 */
+	private int[] get(long key, int[] givens) {
+		Table t = table;
+		int[] solution = new int[CELLS];
+		for (int slot = (int) key & t.mask;; slot = (slot + 1) & t.mask) {
+			int offset = HEADER + slot * SLOT;
+			long found = (long) LONGS.getAcquire(t.buffer, offset);
+			if (found == 0)
+				return null;
+			if (found == key && unpack(t.buffer, offset + 8, givens, solution))
+				return solution;
+		}
+	}
+
+	/**
+	 * This method adds the solution of a puzzle under its exact givens, unless
+	 * they are already in the index.
+	 *
+	 * @param givens   array of 81 digits (0 for blank cells)
+	 * @param solution the 81 digits of the solution
+	 * @throws IOException if the index cannot grow
+	 */
+	public void put(int[] givens, int[] solution) throws IOException {
+		put(exactKey(givens), givens, solution);
+	}
+
+	/**
+	 * This method adds the solution of a canonical puzzle, unless the puzzle is
+	 * already in the index.
+	 *
+	 * @param form     canonical form of the puzzle
+	 * @param solution the 81 digits of the solution in the canonical layout
+	 * @throws IOException if the index cannot grow
+	 */
+	public void put(CanonicalForm form, int[] solution) throws IOException {
+		put(key(form.getHash()), form.getCells(), solution);
+	}
+
+	private synchronized void put(long key, int[] givens, int[] solution) throws IOException {
+		if (!writable)
+			throw new IllegalStateException("Solution index is read only: " + file);
+		if (get(key, givens) != null)
+			return;
+
+		Table t = table;
+		long count = t.buffer.getLong(COUNT_OFFSET);
+		if (count >= t.mask + 1 - ((t.mask + 1) >>> 2))
+			t = grow(t);
+
+		insert(t, key, pack(solution));
+		t.buffer.putLong(COUNT_OFFSET, count + 1);
+	}
+
+	/**
+	 * This method writes a packed solution in the first free slot of its probe
+	 * sequence, then publishes its hash.
+	 */
+	private static void insert(Table t, long key, byte[] packed) {
+		int slot = (int) key & t.mask;
+		while ((long) LONGS.getAcquire(t.buffer, HEADER + slot * SLOT) != 0)
+			slot = (slot + 1) & t.mask;
+
+		int offset = HEADER + slot * SLOT;
+		t.buffer.put(offset + 8, packed);
+		LONGS.setRelease(t.buffer, offset, key);
+	}
+
+	/**
+	 * This method rehashes the table into a new file twice as large, moves it
+	 * over the index file and maps it.
+	 *
+	 * @return the new table
+	 */
+	private Table grow(Table old) throws IOException {
+		int slots = 2 * (old.mask + 1);
+		if (slots > MAX_SLOTS)
+			throw new IOException("Solution index is full: " + file);
+
+		File grown = new File(file.getPath() + ".tmp");
+		FileChannel grownChannel = create(grown, slots);
+		FileLock grownLock = lock(grownChannel, grown);
+		Table t = map(grownChannel, true, grown);
+		byte[] packed = new byte[PACKED];
+		for (int slot = 0; slot <= old.mask; slot++) {
+			int offset = HEADER + slot * SLOT;
+			long key = old.buffer.getLong(offset);
+			if (key != 0) {
+				old.buffer.get(offset + 8, packed);
+				insert(t, key, packed);
+			}
+		}
+		t.buffer.putLong(COUNT_OFFSET, old.buffer.getLong(COUNT_OFFSET));
+		t.buffer.force();
+
+		Files.move(grown.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		lock.release();
+		channel.close();
+		channel = grownChannel;
+		lock = grownLock;
+		table = t;
+		return t;
+	}
+
+	/**
+	 * This method returns the key of a hash, never 0 (empty slot).
+	 */
+	private static long key(long hash) {
+		return (hash == 0) ? 1 : hash;
+	}
+
+	/**
+	 * This method returns the key of exact givens, apart from the keys of the
+	 * canonical forms.
+	 */
+	private static long exactKey(int[] givens) {
+		if (givens.length != CELLS)
+			throw new IllegalArgumentException("Solution index only holds 9x9 grids: " + givens.length);
+		return key(CanonicalForm.hash(givens) ^ EXACT);
+	}
+
+	/**
+	 * This method packs the first 8 rows of a solution, two digits in 7 bits.
+	 */
+	private static byte[] pack(int[] solution) {
+		byte[] packed = new byte[PACKED];
+		int bits = 0;
+		for (int i = 0; i < CELLS - SIZE; i += 2)
+			for (int v = (solution[i] - 1) * SIZE + solution[i + 1] - 1, b = 0; b < 7; b++, bits++)
+				packed[bits >> 3] |= ((v >> b) & 1) << (bits & 7);
+		return packed;
+	}
+
+	/**
+	 * This method unpacks a solution, rebuilds its last row and checks it
+	 * against the givens.
+	 *
+	 * @return false if a given is not in the solution
+	 */
+	private static boolean unpack(MappedByteBuffer buffer, int offset, int[] givens, int[] solution) {
+		long bits = 0; // bits read and not used yet
+		int held = 0;  // number of these bits
+		int next = 0;  // next byte to read
+		for (int i = 0; i < CELLS - SIZE; i += 2) {
+			if (held < 7) {
+				bits |= (long) (buffer.get(offset + next++) & 0xFF) << held;
+				held += 8;
+			}
+			int v = (int) (bits & 0x7F);
+			bits >>>= 7;
+			held -= 7;
+			solution[i] = v / SIZE + 1;
+			solution[i + 1] = v % SIZE + 1;
+		}
+		for (int c = 0; c < SIZE; c++) {
+			int sum = 0;
+			for (int r = 0; r < SIZE - 1; r++)
+				sum += solution[r * SIZE + c];
+			solution[CELLS - SIZE + c] = SIZE * (SIZE + 1) / 2 - sum;
+		}
+		return agrees(givens, solution);
+	}
+
+	/**
+	 * This method checks that a solution holds every given of a puzzle.
+	 */
+	private static boolean agrees(int[] givens, int[] solution) {
+		for (int i = 0; i < CELLS; i++)
+			if (givens[i] != 0 && givens[i] != solution[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * This method returns the number of keys in the index (each solved puzzle
+	 * is stored under two keys).
+	 *
+	 * @return number of entries
+	 */
+	public long getCount() {
+		return table.buffer.getLong(COUNT_OFFSET);
+	}
+
+	/**
+	 * This method checks if solutions can be added to the index.
+	 *
+	 * @return true if the index was opened for writing
+	 */
+	public boolean isWritable() {
+		return writable;
+	}
+
+	/**
+	 * This method writes the changes of the mapped table to the disk.
+	 */
+	public void force() {
+		if (writable)
+			table.buffer.force();
+	}
+
+	/**
+	 * This method writes the changes to the disk and closes the file. The index
+	 * must not be used after.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		force();
+		if (lock != null)
+			lock.release();
+		channel.close();
+	}
+
+}
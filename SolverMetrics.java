@@ -0,0 +1,176 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class implements the metrics of the solver exposed over JMX.
+ *
+ * There is a single instance per JVM, shared by all the SudokuEngines. It is
+ * registered as Sudoku:type=SolverMetrics on the platform MBean server, and each
+ * rule gets its own RuleMetrics registered as Sudoku:type=RuleMetrics,name=rule.
+ *
+ * All the counters are LongAdders, so they stay cheap when the BatchSolver
+ * workers update them in parallel. The SudokuEngine counts placements and
+ * eliminations in plain fields while solving and adds them here once per
+ * puzzle.
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SolverMetrics implements SolverMetricsMBean {
+
+	private static final String DOMAIN = "Sudoku";
+	private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+	private final LongAdder placements = new LongAdder();
+	private final LongAdder eliminations = new LongAdder();
+	private final LongAdder backtracks = new LongAdder();
+	private final LongAdder solved = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final ConcurrentHashMap<String, RuleMetrics> rules = new ConcurrentHashMap<String, RuleMetrics>();
+
+	private static final long WINDOW = 10_000_000_000L; // nanoseconds over which the throughput is measured
+
+	private long windowStart = System.nanoTime(); // start of the current window of the throughput
+	private long windowCount;                     // puzzles finished before that start
+	private double throughput = -1;               // puzzles per second over the previous window, -1 before the first one
+
+	private SolverMetrics() {
+		register("type=SolverMetrics", this);
+	}
+
+	/**
+	 * This method returns the metrics of the JVM.
+	 *
+	 * @return the shared SolverMetrics
+	 */
+	public static SolverMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * This method returns the metrics of a rule, creating and registering them
+	 * the first time the rule is seen.
+	 *
+	 * @param name name of the rule
+	 * @return metrics of the rule
+	 */
+	public RuleMetrics rule(String name) {
+		RuleMetrics metrics = rules.get(name);
+		if (metrics != null)
+			return metrics;
+
+		return rules.computeIfAbsent(name, n -> {
+			RuleMetrics created = new RuleMetrics(n);
+			register("type=RuleMetrics,name=" + ObjectName.quote(n), created);
+			return created;
+		});
+	}
+
+	/**
+	 * This method records the result of one puzzle.
+	 *
+	 * @param puzzleSolved true if the puzzle is solved, false if it has no solution
+	 * @param placed       number of cells set to a single digit
+	 * @param eliminated   number of candidates removed
+	 */
+	public void recordPuzzle(boolean puzzleSolved, long placed, long eliminated) {
+		placements.add(placed);
+		eliminations.add(eliminated);
+		if (puzzleSolved)
+			solved.increment();
+		else
+			failed.increment();
+	}
+
+	/**
+	 * This method records the nodes visited by a search engine.
+	 *
+	 * @param nodes number of nodes visited
+	 */
+	public void recordBacktracks(long nodes) {
+		backtracks.add(nodes);
+	}
+
+	@Override
+	public long getPlacements() {
+		return placements.sum();
+	}
+
+	@Override
+	public long getEliminations() {
+		return eliminations.sum();
+	}
+
+	@Override
+	public long getBacktracks() {
+		return backtracks.sum();
+	}
+
+	@Override
+	public long getPuzzlesSolved() {
+		return solved.sum();
+	}
+
+	@Override
+	public long getPuzzlesFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * This method returns the throughput over the last complete window of at
+	 * least WINDOW, or since the start of the first window if none is complete
+	 * yet. A read only closes the current window when it is WINDOW old, so every
+	 * reader gets the same value however often the attribute is read.
+	 */
+	@Override
+	public synchronized double getThroughput() {
+		long now = System.nanoTime();
+		long count = solved.sum() + failed.sum();
+		long elapsed = now - windowStart;
+		if (elapsed >= WINDOW) {
+			throughput = (count - windowCount) * 1e9 / elapsed;
+			windowStart = now;
+			windowCount = count;
+		} else if (throughput < 0)
+			return (count - windowCount) * 1e9 / Math.max(1, elapsed);
+		return throughput;
+	}
+
+	@Override
+	public synchronized void reset() {
+		placements.reset();
+		eliminations.reset();
+		backtracks.reset();
+		solved.reset();
+		failed.reset();
+		for (RuleMetrics metrics : rules.values())
+			metrics.reset();
+		windowStart = System.nanoTime();
+		windowCount = 0;
+		throughput = -1;
+	}
+
+	/**
+	 * This method registers an MBean on the platform MBean server. If JMX is not
+	 * available the metrics are still counted, only not exposed.
+	 *
+	 * @param properties key properties of the ObjectName
+	 * @param mbean      MBean to be registered
+	 */
+	static void register(String properties, Object mbean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+			if (!server.isRegistered(name))
+				server.registerMBean(mbean, name);
+		} catch (JMException | SecurityException e) {
+			System.out.println(e);
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+/**
+ * This interface is the JMX management interface of the SolverMetrics.
+ * It is registered as Sudoku:type=SolverMetrics on the platform MBean server.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface SolverMetricsMBean {
+
+	/** @return number of cells set to a single digit by the rules */
+	long getPlacements();
+
+	/** @return number of candidates removed by the rules */
+	long getEliminations();
+
+	/** @return number of nodes visited by the search engines */
+	long getBacktracks();
+
+	/** @return number of puzzles solved */
+	long getPuzzlesSolved();
+
+	/** @return number of puzzles with no solution */
+	long getPuzzlesFailed();
+
+	/**
+	 * @return puzzles finished per second over the last complete window of ten
+	 *         seconds, the same for every reader (the rate over any other window
+	 *         can be derived from PuzzlesSolved and PuzzlesFailed)
+	 */
+	double getThroughput();
+
+	/** This method sets all the counters back to 0, including the rule metrics. */
+	void reset();
+
+}
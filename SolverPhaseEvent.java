@@ -0,0 +1,52 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class implements the Java Flight Recorder event emitted for each phase
+ * of the solver: the penciling, each run of a rule by the RuleScheduler and the
+ * search.
+ * 
+ * The event is disabled by default. While it is disabled, begin() and
+ * shouldCommit() return immediately and the JIT removes the allocation of the
+ * event, so the phases cost nothing more than without JFR. It is enabled with
+ * the sudoku.jfc settings file, for example:
+ * 
+ * java -XX:StartFlightRecording:settings=sudoku.jfc,filename=batch.jfr BatchSolver input output
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+@Name("sudoku.SolverPhase")
+@Label("Solver Phase")
+@Category("Sudoku")
+@Description("Penciling, run of a rule or search of the solver")
+@Enabled(false)
+@StackTrace(false)
+public class SolverPhaseEvent extends jdk.jfr.Event {
+
+	@Label("Phase")
+	String phase;    // name of the rule, "Penciling" or "Search"
+
+	@Label("Removed Candidates")
+	boolean hit;     // true if the phase removed candidates (or found a solution)
+
+	/**
+	 * This method ends the event and commits it if it is enabled and above its
+	 * threshold. The fields are only set when the event is committed.
+	 * 
+	 * @param phaseName name of the phase
+	 * @param phaseHit  true if the phase removed candidates
+	 */
+	void finish(String phaseName, boolean phaseHit) {
+		if (shouldCommit()) {
+			phase = phaseName;
+			hit = phaseHit;
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+/**
+ * This interface is implemented by the rules applied by the RuleScheduler.
+ * 
+ * A rule removes candidates from the SudokuEngine. It receives the stamp of
+ * the engine at its previous run, so it can skip the units that did not change
+ * since then (see SudokuEngine.changedSince()).
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public interface SolverRule {
+
+	/**
+	 * This method returns the name of the rule shown to the user.
+	 * 
+	 * @return name of the rule
+	 */
+	String getName();
+
+	/**
+	 * This method returns the relative cost of one run of the rule. Cheaper rules
+	 * are tried first.
+	 * 
+	 * @return cost of the rule (1 for the cheapest)
+	 */
+	int getCost();
+
+	/**
+	 * This method applies the rule on the engine.
+	 * 
+	 * @param engine engine holding the candidates
+	 * @param since  stamp of the engine at the previous run of the rule, -1 to
+	 *               check every unit
+	 * @return true if any candidate has been removed
+	 */
+	boolean apply(SudokuEngine engine, long since);
+
+}
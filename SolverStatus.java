@@ -0,0 +1,17 @@
+/**
+ * This enum implements the states of the solving procedure once no rule can
+ * remove any more candidates from the puzzle.
+ * 
+ * SOLVED: every cell has a single candidate and no digit is repeated.
+ * STUCK: some cells still have several candidates.
+ * INCONSISTENT: a cell has no candidate left or a digit is repeated in a row,
+ * column or box.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public enum SolverStatus {
+
+	SOLVED, STUCK, INCONSISTENT
+
+}
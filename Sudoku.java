@@ -15,20 +15,25 @@ import java.util.ArrayList;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 
 /**
  * This class implements the Sudoku JFrame including the
- * buttons(Load,Run,Interrupt,Clear,Exit), status console, and the grid layout
+ * buttons(Load,Run,Count,Interrupt,Clear,Exit), status console, and the grid layout
  * that is responsible to hold the numbers.
  * 
  * This class contains the actionPerformed function to handle different button
  * clicks. When the user clicks each time on load or run buttons, new threads
  * start to load the file and to run the solver in order not to block the GUI.
+ * The row of buttons also holds the run mode of the solver and the frame rate
+ * used in the animated mode.
  * 
  * This class contains 2 functions: makeButton() and actionPerformed()
  *
@@ -40,11 +45,14 @@ import javax.swing.JTextField;
 public class Sudoku extends JFrame implements ActionListener {
 
 	private JPanel rowOfButtons; // row of buttons
-	private String[] buttonNames = { "LOAD", "RUN", "INTERRUPT", "CLEAR", "QUIT" };
+	private String[] buttonNames = { "LOAD", "RUN", "COUNT", "INTERRUPT", "CLEAR", "QUIT" };
 	ArrayList<ArrayList<String>> fileData; // 2D array list to fill the numbers from the file into it
 	Board b; // Game Board
 	StatusConsole s; // status console
 	Thread solver; // thread responsible to run the solving procedure
+	SudokuSolver runner; // solving procedure running in the solver thread
+	JComboBox<RunMode> runMode; // run mode used when RUN is clicked
+	JSpinner frameRate; // frames per second used in the animated mode
 
 	/**
 	 * Constructor of the Sudoku Game. it initialize the width and height of the
@@ -52,7 +60,8 @@ public class Sudoku extends JFrame implements ActionListener {
 	 * clickable buttons.
 	 * 
 	 * Status Console: its responsible to show the user the different states of the game.
-	 * Board: its responsible to create the 9x9 grid for the game row of buttons.
+	 * Board: its responsible to create the grid for the game (9x9, or 16x16 and 25x25 when such a
+	 * puzzle is loaded) row of buttons.
 	 * buttons: its the row that contains different buttons with different functions.
 	 * 
 	 */
@@ -68,8 +77,13 @@ public class Sudoku extends JFrame implements ActionListener {
 		contentPane.add(s.getStatusConsole(), BorderLayout.SOUTH);
 
 		// creates the row of buttons and add it to the content pane
-		JPanel j = new JPanel(new GridLayout(1, 5));
+		JPanel j = new JPanel(new GridLayout(1, buttonNames.length + 2));
 		rowOfButtons = makeButton(j, buttonNames, this);
+		runMode = new JComboBox<RunMode>(RunMode.values());
+		frameRate = new JSpinner(new SpinnerNumberModel(2, 1, 60, 1));
+		frameRate.setToolTipText("Frames per second in Animated mode");
+		rowOfButtons.add(runMode);
+		rowOfButtons.add(frameRate);
 		contentPane.add(rowOfButtons, BorderLayout.NORTH);
 
 		// creates the board of the game and add it to the content pane
@@ -105,7 +119,10 @@ public class Sudoku extends JFrame implements ActionListener {
 	 * This is the action performed function. This function handles the clicks of
 	 * the buttons. 
 	 * LOAD : start SudokuFileReader in a new thread.
-	 * RUN: start Solver in a new thread .
+	 * RUN: start Solver in a new thread with the selected run mode, or advance
+	 * the running solver by one rule if it is in STEP mode.
+	 * COUNT: start SolutionCounter in a new thread to count the solutions of the
+	 * puzzle on the Board.
 	 * INTERRUPT: interrupt the solver. 
 	 * CLEAR: clear the board from the numbers. 
 	 * QUIT: close the program.
@@ -122,9 +139,19 @@ public class Sudoku extends JFrame implements ActionListener {
 			new Thread(new SudokuFileReader(fileData, b, s)).start(); // b: board, s: status console, filedate: empty 2D array															
 			break;
 		case "RUN":
-			solver = new Thread(new SudokuSolver(b, s)); // b: board, s: status console
+			if (solver != null && solver.isAlive() && runner.getMode() == RunMode.STEP) {
+				runner.step(); // apply the next rule
+				break;
+			}
+			RunMode mode = (RunMode) runMode.getSelectedItem();
+			int fps = (Integer) frameRate.getValue();
+			runner = new SudokuSolver(b, s, mode, fps); // b: board, s: status console
+			solver = new Thread(runner);
 			solver.start();
 			break;
+		case "COUNT":
+			new Thread(new SolutionCounter(b, s)).start(); // b: board, s: status console
+			break;
 		case "INTERRUPT":
 			solver.interrupt(); // interrupt the solving procedure
 			break;
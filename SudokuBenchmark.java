@@ -0,0 +1,330 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * This class implements the benchmarks of the Sudoku Game. It measures the
+ * parsing of puzzle files, the penciling, a single step and the propagation
+ * of the rules and the full solves of three corpora (easy, hard and
+ * pathological) with each search engine, and the canonical forms of the
+ * corpora and of sparse grids (blank, one row, one given) whose many tied
+ * transforms once made it blow up, and prints the average time of each
+ * operation:
+ *
+ * Benchmark                         Cnt        Score        Error  Units
+ * solve.dlx.hard                      5      518.708  +-     55.007  us/op
+ *
+ * Each benchmark runs WARMUP iterations which are not reported, then
+ * ITERATIONS measured iterations of about iterationMillis each. The result of
+ * every operation is folded in a sink so the JIT cannot remove the work. Each
+ * benchmark runs in a fresh engine and, like the BatchSolver, reuses it for
+ * every puzzle, so the statistics the scheduler gathers in one benchmark do
+ * not change the order of the rules in the next one.
+ *
+ * The penciling, step and propagation benchmarks include the load of the
+ * givens, which is measured alone by the load benchmark, and the step and
+ * propagation benchmarks include the penciling. The step benchmark applies a
+ * single rule, the first one the scheduler finds making progress after the
+ * penciling, while the propagation benchmark applies the rules up to their
+ * fixed point.
+ *
+ * Before the canonical benchmarks, the canonical form of every corpus, of the
+ * sparse grids and of givens repeating a digit is checked to give back its
+ * puzzle, and the run stops with an exception if one does not.
+ *
+ * Usage: java SudokuBenchmark [-time ms] [regex]
+ *
+ * where regex selects the benchmarks by name (for example "solve\..*").
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SudokuBenchmark {
+
+	private static final int WARMUP = 5;      // iterations run before measuring
+	private static final int ITERATIONS = 5;  // measured iterations
+	private static final int FILE_COPIES = 100; // copies of the corpora in the parsed file
+
+	private static final String[] EASY = { // solved by the rules
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79",
+			"003020600900305001001806400008102900700000008006708200002609500800203009005010300",
+			"..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3.." };
+
+	private static final String[] HARD = { // need the fish, the subsets or a short search
+			"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+			".......39.....1..5..3.5.8....8.9...6.7...2...1..4.......9.8..5..2....6..4..7....." };
+
+	private static final String[] PATHOLOGICAL = { // worst cases of the search
+			"..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+			"1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+			"12.3....435....1....4........54..2..6...7.........8.9...31..5.......9.7.....6...8" };
+
+	private static final String[] SPARSE = { // many tied transforms for the canonical form
+			".................................................................................",
+			"123456789........................................................................",
+			"1................................................................................" };
+
+	private static final String[] INVALID = { // givens repeating a digit, which have no solution
+			"11...............................................................................",
+			"534678912672195348198342567859761423426853791713924856961537284287419635345286172" };
+
+	private static volatile long sink;  // results of the operations
+
+	private final long iterationNanos;  // duration of a measured iteration
+	private final Pattern filter;       // selects the benchmarks to run
+
+	/**
+	 * Constructor of the SudokuBenchmark.
+	 *
+	 * @param iterationMillis duration of each iteration, in milliseconds
+	 * @param filter          regular expression matching the benchmarks to run
+	 */
+	public SudokuBenchmark(long iterationMillis, String filter) {
+		this.iterationNanos = iterationMillis * 1_000_000L;
+		this.filter = Pattern.compile(filter);
+	}
+
+	/**
+	 * This interface is implemented by the operations being measured. Each call
+	 * runs the operation once and returns a value depending on its result.
+	 */
+	private interface Operation {
+		long run() throws Exception;
+	}
+
+	/**
+	 * This method runs all the benchmarks matching the filter.
+	 *
+	 * @throws Exception if a benchmark fails
+	 */
+	public void runAll() throws Exception {
+		System.out.printf("%-32s %4s %12s   %10s  %s%n", "Benchmark", "Cnt", "Score", "Error", "Units");
+
+		File file = writeCorpus();
+		try {
+			benchmark("parse.file", FILE_COPIES * (EASY.length + HARD.length + PATHOLOGICAL.length),
+					() -> SudokuFileReader.readPuzzles(file).size());
+		} finally {
+			file.delete();
+		}
+		benchmark("parse.line", 1, () -> parse(HARD[0])[0]);
+
+		String[][] corpora = { EASY, HARD, PATHOLOGICAL };
+		String[] names = { "easy", "hard", "pathological" };
+
+		for (int c = 0; c < corpora.length; c++) {
+			int[][] puzzles = parseAll(corpora[c]);
+			SudokuEngine loading = new SudokuEngine();
+			benchmark("load." + names[c], puzzles.length, () -> {
+				for (int[] puzzle : puzzles)
+					loading.load(puzzle);
+				return loading.getStamp();
+			});
+			SudokuEngine penciling = new SudokuEngine();
+			benchmark("penciling." + names[c], puzzles.length, () -> {
+				long result = 0;
+				for (int[] puzzle : puzzles) {
+					penciling.load(puzzle);
+					result += penciling.penciling() ? 1 : 0;
+				}
+				return result;
+			});
+			SudokuEngine stepping = new SudokuEngine();
+			benchmark("step." + names[c], puzzles.length, () -> {
+				long result = 0;
+				for (int[] puzzle : puzzles) {
+					stepping.load(puzzle);
+					stepping.penciling();
+					SolverRule rule = stepping.step();
+					result += (rule == null) ? 0 : rule.getCost();
+				}
+				return result;
+			});
+			SudokuEngine propagating = new SudokuEngine();
+			benchmark("propagate." + names[c], puzzles.length, () -> {
+				long result = 0;
+				for (int[] puzzle : puzzles) {
+					propagating.load(puzzle);
+					propagating.penciling();
+					result += propagating.propagate().ordinal();
+				}
+				return result;
+			});
+		}
+
+		for (String[] corpus : new String[][] { EASY, HARD, PATHOLOGICAL, SPARSE, INVALID })
+			checkCanonical(parseAll(corpus));
+
+		for (int c = 0; c < corpora.length; c++) {
+			int[][] puzzles = parseAll(corpora[c]);
+			benchmark("canonical." + names[c], puzzles.length, () -> {
+				long result = 0;
+				for (int[] puzzle : puzzles)
+					result += CanonicalForm.of(puzzle).getHash();
+				return result;
+			});
+		}
+		int[][] sparse = parseAll(SPARSE);
+		benchmark("canonical.sparse", sparse.length, () -> {
+			long result = 0;
+			for (int[] puzzle : sparse)
+				result += CanonicalForm.of(puzzle).getHash();
+			return result;
+		});
+
+		for (String engineName : new String[] { "dlx", "backtracking" }) {
+			for (int c = 0; c < corpora.length; c++) {
+				int[][] puzzles = parseAll(corpora[c]);
+				SudokuEngine engine = new SudokuEngine(SearchEngine.create(engineName, SudokuTopology.STANDARD));
+				benchmark("solve." + engineName + "." + names[c], puzzles.length, () -> {
+					long result = 0;
+					for (int[] puzzle : puzzles)
+						if (engine.solve(puzzle))
+							result++;
+					return result;
+				});
+			}
+		}
+	}
+
+	/**
+	 * This method measures an operation if its name matches the filter and prints
+	 * the average time per puzzle with the error of the mean (99.9% confidence).
+	 *
+	 * @param name      name of the benchmark
+	 * @param puzzles   number of puzzles handled by each call of the operation
+	 * @param operation operation to be measured
+	 * @throws Exception if the operation fails
+	 */
+	private void benchmark(String name, int puzzles, Operation operation) throws Exception {
+		if (!filter.matcher(name).matches())
+			return;
+
+		for (int i = 0; i < WARMUP; i++)
+			iteration(operation, puzzles);
+
+		double[] scores = new double[ITERATIONS];
+		double mean = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			scores[i] = iteration(operation, puzzles);
+			mean += scores[i] / ITERATIONS;
+		}
+
+		double variance = 0;
+		for (double score : scores)
+			variance += (score - mean) * (score - mean) / (ITERATIONS - 1);
+		double error = 3.29 * Math.sqrt(variance / ITERATIONS);
+
+		System.out.printf("%-32s %4d %12.3f  +- %10.3f  us/op%n", name, ITERATIONS, mean, error);
+	}
+
+	/**
+	 * This method runs the operation for about iterationNanos.
+	 *
+	 * @return average time per puzzle, in microseconds
+	 */
+	private double iteration(Operation operation, int puzzles) throws Exception {
+		long result = 0;
+		long calls = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			result += operation.run();
+			calls++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationNanos);
+
+		sink += result;
+		return elapsed / 1e3 / calls / puzzles;
+	}
+
+	/**
+	 * This method checks that the canonical form of each puzzle moves its grids
+	 * back to the original layout: the canonical givens and, for any grid x,
+	 * fromCanonical(toCanonical(x)) must give back the givens and x. A form
+	 * failing it would make the cache and the deduplication hand out the
+	 * solution of another puzzle.
+	 *
+	 * @param puzzles puzzles to check
+	 * @throws IllegalStateException if a form does not give back a grid
+	 */
+	private static void checkCanonical(int[][] puzzles) {
+		for (int[] puzzle : puzzles) {
+			CanonicalForm form = CanonicalForm.of(puzzle);
+			if (!Arrays.equals(form.fromCanonical(form.getCells()), puzzle)
+					|| !Arrays.equals(form.fromCanonical(form.toCanonical(puzzle)), puzzle))
+				throw new IllegalStateException("The canonical form " + form + " does not give back its puzzle");
+		}
+	}
+
+	/**
+	 * This method writes FILE_COPIES copies of all the corpora in a temporary
+	 * file, alternating the 81 chars format and the 9 lines format.
+	 *
+	 * @return temporary file holding the puzzles
+	 * @throws IOException if the file cannot be written
+	 */
+	private static File writeCorpus() throws IOException {
+		File file = File.createTempFile("sudoku", ".txt");
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+			for (int copy = 0; copy < FILE_COPIES; copy++)
+				for (String[] corpus : new String[][] { EASY, HARD, PATHOLOGICAL })
+					for (String puzzle : corpus) {
+						if (copy % 2 == 0) {
+							bw.write(puzzle);
+							bw.newLine();
+						} else {
+							for (int row = 0; row < 9; row++) {
+								bw.write(puzzle, row * 9, 9);
+								bw.newLine();
+							}
+							bw.newLine();
+						}
+					}
+		}
+		return file;
+	}
+
+	private static int[] parse(String line) {
+		int[] cells = new int[line.length()];
+		SudokuFileReader.parseCells(line, cells, 0, cells.length);
+		return cells;
+	}
+
+	private static int[][] parseAll(String[] corpus) {
+		int[][] puzzles = new int[corpus.length][];
+		for (int i = 0; i < corpus.length; i++)
+			puzzles[i] = parse(corpus[i]);
+		return puzzles;
+	}
+
+	public static void main(String[] args) {
+
+		long millis = 1000;
+		String filter = ".*";
+		int arg = 0;
+		if (args.length >= 2 && args[0].equals("-time")) {
+			millis = Long.parseLong(args[1]);
+			arg = 2;
+		}
+		if (args.length > arg + 1) {
+			System.err.println("Usage: java SudokuBenchmark [-time ms] [regex]");
+			System.exit(1);
+		}
+		if (args.length == arg + 1)
+			filter = args[arg];
+
+		try {
+			new SudokuBenchmark(millis, filter).runAll();
+		} catch (Exception e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+
+	}
+
+}
@@ -0,0 +1,1103 @@
+/**
+ * This class implements the headless solving engine of the Sudoku Game.
+ *
+ * The puzzle is held as an array of candidate masks, one int per cell. Bit
+ * (d-1) of a mask is set when the digit d is still a candidate for that cell,
+ * so a cell whose mask has a single bit set is solved. The size of the grid is
+ * given by its SudokuTopology: 9x9 by default, 16x16 or 25x25 for the larger
+ * grids. The engine knows nothing about Swing, the Board or the JTextFields;
+ * the SudokuSolver only loads the givens into it and reads the masks back to
+ * show them on the Board.
+ *
+ * It implements the same rules used by the SudokuSolver:
+ * 1- Penciling.
+ * 2- Single Candidate Square (updateCandidates).
+ * 3- Single Square Candidate (in rows, columns and boxes).
+ * 4- Subsets (naked and hidden pairs, triples and quads).
+ * 5- Number Claiming (pointing and box/line reduction).
+ * 6- Fish (X-Wing, Swordfish and Jellyfish).
+ *
+ * Every rule returns true if it removed at least one candidate from the puzzle.
+ * The rules are wrapped as SolverRules by the Technique enum and applied by a
+ * RuleScheduler. Each change of a cell increases the stamp of the engine and
+ * records it on the 3 units of the cell, so a rule given the stamp of its
+ * previous run only looks at the units that changed since then.
+ *
+ * Placements and eliminations are counted in plain fields while solving and
+ * added to the SolverMetrics (JMX) once per puzzle by reportMetrics(). Each
+ * solve and each phase also emit a Java Flight Recorder event
+ * (PuzzleSolveEvent and SolverPhaseEvent), disabled by default.
+ * When a cell is left with a single candidate it is pushed on a queue of
+ * placements; updateCandidates() removes the digit of each queued cell from its
+ * peers only, instead of rescanning the whole puzzle. The rows, columns,
+ * boxes and peers are read from the tables of the SudokuTopology, so every
+ * rule iterates the same way over the units of any grid size.
+ * propagate() applies the rules until none of them makes progress, so a
+ * call always ends with a SOLVED, STUCK or INCONSISTENT status. When the rules
+ * are STUCK, search() hands the candidates to a SearchEngine (DancingLinks or
+ * BacktrackingSearch, chosen by configuration) which solves any valid puzzle.
+ *
+ * For the 16x16 and larger grids, propagate() can hand the rules to a
+ * ParallelPropagator, which applies each rule to slices of the units on
+ * several threads and merges the eliminations (see setParallelism()).
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public class SudokuEngine {
+
+	private final SudokuTopology topology;           // rows, columns, boxes and peers of the grid
+	private final int[][] unitCells;                 // cells of each unit
+	private final int[][] cellUnits;                 // row, column and box unit of each cell
+	private final int[][] peers;                     // peers of each cell
+	private final int unitSize;                      // number of cells in a unit and of digits
+	private final int allDigits;                     // mask with all the digits set
+	private final int[] candidates;                  // candidate mask of each cell
+	private final SearchEngine searchEngine;          // fallback when the rules are stuck
+	private final int[] queue;                       // solved cells whose digit is not removed from their peers yet
+	private int queueSize;                           // number of cells in the queue
+	private int solvedCount;                         // number of cells with a single candidate
+	private boolean conflict;                        // a cell lost all its candidates, a digit is repeated or the search found no solution
+	private long stamp;                              // increased on each change of a cell
+	private final long[] unitStamps;                 // stamp of the last change in each unit
+	private final RuleScheduler scheduler = new RuleScheduler(Technique.values()); // orders the rules
+	private long placements;                         // cells set to a single digit since the last load
+	private long eliminations;                       // candidates removed since the last load
+	private int rulesFired;                          // rule steps that removed candidates since the last load
+	private final int[] techniqueUses = new int[Technique.values().length]; // steps of each Technique since the last load
+	private long guesses;                            // nodes visited by the search since the last load
+	private int countLimit;                          // limit of the solution count done by solve(), 0 for none
+	private int solutionCount;                       // solutions counted by the last solve(), at most countLimit
+	private final RuleMetrics pencilingMetrics = SolverMetrics.get().rule("Penciling");
+	private final RuleMetrics searchMetrics = SolverMetrics.get().rule("Search");
+	private final int[] placed;                      // digits placed in each unit (penciling)
+	private final int[] free;                        // unsolved cells or digits of a unit (subsets)
+	private final int[] positions;                   // cells of a unit holding each digit (subsets)
+	private final int[][] linePositions;             // columns of each row, rows of each column holding a digit (fish)
+	private ParallelPropagator parallel;             // applies the rules on several threads, null for serial propagation
+
+	/**
+	 * Constructor of the SudokuEngine for the 9x9 grid. It uses the search engine
+	 * chosen by the sudoku.search system property.
+	 */
+	public SudokuEngine() {
+		this(SudokuTopology.STANDARD);
+	}
+
+	/**
+	 * Constructor of the SudokuEngine. It uses the search engine chosen by the
+	 * sudoku.search system property and, for the grids of 16x16 and more, the
+	 * number of threads given by the sudoku.parallelism system property.
+	 *
+	 * @param topology layout of the grid
+	 */
+	public SudokuEngine(SudokuTopology topology) {
+		this(SearchEngine.fromConfiguration(topology));
+		if (topology.size >= ParallelPropagator.MIN_SIZE)
+			setParallelism(Integer.getInteger(ParallelPropagator.PROPERTY, 1));
+	}
+
+	/**
+	 * Constructor of the SudokuEngine. The grid has the size of the search engine.
+	 *
+	 * @param searchEngine engine used when the rules are stuck
+	 */
+	public SudokuEngine(SearchEngine searchEngine) {
+		this(searchEngine.getTopology(), searchEngine);
+	}
+
+	/**
+	 * Constructor of the SudokuEngine.
+	 *
+	 * @param topology     layout of the grid
+	 * @param searchEngine engine used when the rules are stuck, null for the
+	 *                     scratch engines of the ParallelPropagator, which
+	 *                     never search
+	 */
+	SudokuEngine(SudokuTopology topology, SearchEngine searchEngine) {
+		this.topology = topology;
+		this.searchEngine = searchEngine;
+		this.unitCells = topology.unit;
+		this.cellUnits = topology.unitsOf;
+		this.peers = topology.peer;
+		this.unitSize = topology.size;
+		this.allDigits = (1 << unitSize) - 1;
+		this.candidates = new int[topology.cells];
+		this.queue = new int[topology.cells];
+		this.unitStamps = new long[topology.units];
+		this.placed = new int[topology.units];
+		this.free = new int[unitSize];
+		this.positions = new int[unitSize];
+		this.linePositions = new int[2][unitSize];
+	}
+
+	/**
+	 * This method returns the layout of the grid solved by the engine.
+	 *
+	 * @return topology of the grid
+	 */
+	public SudokuTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * This method sets the number of threads used by propagate(). With more than
+	 * one thread, each rule is applied to slices of the grid in parallel by a
+	 * ParallelPropagator; with one thread the rules are applied by the scheduler.
+	 *
+	 * @param threads number of threads
+	 */
+	public void setParallelism(int threads) {
+		parallel = (threads > 1) ? new ParallelPropagator(topology, threads) : null;
+	}
+
+	/**
+	 * This method solves the puzzle given as an array of digits in row order.
+	 * A value of 0 means an empty cell. It loads the givens, does the penciling and
+	 * then propagates the other rules. If the rules get stuck, the puzzle is
+	 * solved by search().
+	 *
+	 * If a count limit is set, the solutions are also counted (see
+	 * getSolutionCount()): a puzzle solved by the rules alone has exactly one, and
+	 * the others are counted by search() from the fixed point of the rules.
+	 *
+	 * @param givens array of size x size digits (0 for empty cells)
+	 * @return true if the puzzle is solved, false if it has no solution
+	 */
+	public boolean solve(int[] givens) {
+		PuzzleSolveEvent event = new PuzzleSolveEvent();
+		event.begin();
+		load(givens);
+		penciling();
+		SolverStatus status = propagate();
+		if (status == SolverStatus.STUCK)
+			search();
+		else if (countLimit > 0)
+			solutionCount = (status == SolverStatus.SOLVED) ? 1 : 0;
+
+		boolean solved = status() == SolverStatus.SOLVED;
+		event.finish(this);
+		reportMetrics();
+		return solved;
+	}
+
+	/**
+	 * This method sets the limit of the solution count done by solve().
+	 *
+	 * @param limit number of solutions after which the count stops (2 is enough to
+	 *              check that the solution is unique), 0 to skip the count
+	 */
+	public void setCountLimit(int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException("Count limit must not be negative: " + limit);
+		this.countLimit = limit;
+	}
+
+	/**
+	 * This method returns the number of solutions counted by the last solve(). A
+	 * count equal to the limit means at least that many solutions.
+	 *
+	 * @return number of solutions, at most the count limit (0 if there is no limit)
+	 */
+	public int getSolutionCount() {
+		return solutionCount;
+	}
+
+	/**
+	 * This method adds the placements and eliminations of the current puzzle and
+	 * its result to the SolverMetrics. It is called once per puzzle, by solve() or
+	 * by the SudokuSolver when it finishes.
+	 */
+	public void reportMetrics() {
+		SolverMetrics.get().recordPuzzle(status() == SolverStatus.SOLVED, placements, eliminations);
+		placements = 0;
+		eliminations = 0;
+	}
+
+	/**
+	 * This method applies the rules chosen by the scheduler until none of them
+	 * removes a candidate (fixed point), the puzzle is solved or an inconsistency
+	 * is found. Every step removes at least one of the candidates, so the loop
+	 * always terminates.
+	 *
+	 * @return status of the puzzle at the fixed point
+	 */
+	public SolverStatus propagate() {
+		if (parallel != null)
+			return parallel.propagate(this);
+
+		while (step() != null)
+			;
+		return status();
+	}
+
+	/**
+	 * This method applies the next rule chosen by the scheduler that removes
+	 * candidates. It is used by the SudokuSolver to show each rule on the Board.
+	 *
+	 * @return the rule applied, null if no rule can make progress
+	 */
+	public SolverRule step() {
+		if (status() != SolverStatus.STUCK)
+			return null;
+
+		SolverRule rule = scheduler.step(this);
+		if (rule instanceof Technique)
+			ruleFired((Technique) rule);
+		else if (rule != null)
+			rulesFired++;
+		return rule;
+	}
+
+	/**
+	 * This method returns the scheduler of the rules with its statistics.
+	 *
+	 * @return scheduler of the engine
+	 */
+	public RuleScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * This method returns the search engine used when the rules are stuck.
+	 *
+	 * @return search engine of the engine
+	 */
+	public SearchEngine getSearchEngine() {
+		return searchEngine;
+	}
+
+	/**
+	 * This method returns the number of rule steps that removed candidates since
+	 * the last load.
+	 *
+	 * @return number of rules fired
+	 */
+	public int getRulesFired() {
+		return rulesFired;
+	}
+
+	/**
+	 * This method rates the difficulty of the puzzle from the rules used and the
+	 * nodes visited by the search since the last load. It is called after
+	 * solve(), or when the SudokuSolver finishes.
+	 *
+	 * @return difficulty rating of the puzzle
+	 */
+	public DifficultyRating getDifficulty() {
+		return new DifficultyRating(techniqueUses, guesses);
+	}
+
+	/**
+	 * This method returns the number of nodes visited by the search since the
+	 * last load, 0 if the rules solved the puzzle.
+	 *
+	 * @return number of guesses
+	 */
+	public long getGuesses() {
+		return guesses;
+	}
+
+	/**
+	 * This method returns the number of candidates removed since the last load.
+	 *
+	 * @return number of eliminations
+	 */
+	public long getEliminations() {
+		return eliminations;
+	}
+
+	/**
+	 * This method returns the current stamp of the engine. The stamp increases
+	 * each time a cell changes.
+	 *
+	 * @return current stamp
+	 */
+	public long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * This method checks if a cell of a unit changed after a given stamp.
+	 *
+	 * @param unit  index of the unit (see SudokuTopology)
+	 * @param since stamp to compare with
+	 * @return true if the unit changed after that stamp
+	 */
+	public boolean changedSince(int unit, long since) {
+		return unitStamps[unit] > since;
+	}
+
+	/**
+	 * This method hands the current candidates to the search engine. It is
+	 * called once propagate() is stuck. If a solution is found, every cell is set
+	 * to its digit. If a count limit is set, the search goes on after the first
+	 * solution to count them (see getSolutionCount()). If there is no solution
+	 * the engine is left INCONSISTENT.
+	 *
+	 * @return SOLVED if a solution is found, INCONSISTENT if the puzzle has none
+	 */
+	public SolverStatus search() {
+		if (status() != SolverStatus.STUCK)
+			return status();
+
+		SolverPhaseEvent event = new SolverPhaseEvent();
+		event.begin();
+		long start = System.nanoTime();
+		int count = count(Math.max(1, countLimit));
+		if (countLimit > 0)
+			solutionCount = count;
+		searchMetrics.record(count > 0, System.nanoTime() - start);
+		event.finish("Search", count > 0);
+		SolverMetrics.get().recordBacktracks(guesses);
+		return (count > 0) ? SolverStatus.SOLVED : SolverStatus.INCONSISTENT;
+	}
+
+	/**
+	 * This method counts the solutions from the current candidates with the search
+	 * engine. If a solution is found, every cell is set to its digit in the first
+	 * one.
+	 *
+	 * @param limit number of solutions after which the count stops
+	 * @return number of solutions, at most limit
+	 */
+	private int count(int limit) {
+		int count = searchEngine.countSolutions(candidates, limit);
+		guesses = searchEngine.getNodeCount();
+		if (count > 0) {
+			// every cell holds its digit of the solution
+			queueSize = 0;
+			solvedCount = candidates.length;
+		} else
+			conflict = true; // status() reports the proof that there is no solution
+		return count;
+	}
+
+	/**
+	 * This method counts the solutions of the puzzle given as an array of digits
+	 * in row order, stopping at limit. It loads the givens, does the penciling and
+	 * hands the candidates to the search engine. On a 9x9 grid the other rules
+	 * are not propagated: when the search has to run anyway, they cost more than
+	 * the nodes they save. On the larger grids the search alone does not finish,
+	 * so the rules are propagated first. If a solution is found, every cell is
+	 * set to its digit in the first one.
+	 *
+	 * @param givens array of size x size digits (0 for empty cells)
+	 * @param limit  number of solutions after which the count stops (2 is enough
+	 *               to check that the solution is unique)
+	 * @return number of solutions, at most limit
+	 */
+	public int countSolutions(int[] givens, int limit) {
+		load(givens);
+		penciling();
+		return countLoaded(limit);
+	}
+
+	/**
+	 * This method counts the solutions of the puzzle in which a cell does not
+	 * hold a digit, like countSolutions(). The PuzzleGenerator uses it to look
+	 * for a solution other than a known one.
+	 *
+	 * @param givens array of size x size digits (0 for empty cells)
+	 * @param cell   index of an empty cell
+	 * @param digit  digit removed from the candidates of the cell
+	 * @param limit  number of solutions after which the count stops
+	 * @return number of solutions without the digit in the cell, at most limit
+	 */
+	public int countSolutionsWithout(int[] givens, int cell, int digit, int limit) {
+		load(givens);
+		penciling();
+		remove(cell, bit(digit));
+		return countLoaded(limit);
+	}
+
+	/**
+	 * This method counts the solutions from the candidates of the penciling.
+	 *
+	 * @param limit number of solutions after which the count stops
+	 * @return number of solutions, at most limit
+	 */
+	private int countLoaded(int limit) {
+		if (topology.size > SudokuTopology.STANDARD.size)
+			propagate();
+		SolverStatus status = status();
+		if (status != SolverStatus.STUCK)
+			return (status == SolverStatus.SOLVED) ? 1 : 0;
+
+		return count(limit);
+	}
+
+	/**
+	 * This method returns the current status of the puzzle.
+	 *
+	 * @return INCONSISTENT if any cell is inconsistent, SOLVED if every cell has a
+	 *         single candidate, STUCK otherwise
+	 */
+	public SolverStatus status() {
+		if (conflict)
+			return SolverStatus.INCONSISTENT;
+		if (!isSolved())
+			return SolverStatus.STUCK;
+
+		// a full grid may still hold repeated digits that were not propagated yet
+		for (int i = 0; i < candidates.length; i++)
+			if (inConsistency(i))
+				return SolverStatus.INCONSISTENT;
+		return SolverStatus.SOLVED;
+	}
+
+	/**
+	 * This method loads the givens in the engine. Each given cell gets a single
+	 * candidate and is queued as a placement, each empty cell gets all the
+	 * digits as candidates.
+	 *
+	 * @param givens array of size x size digits (0 for empty cells)
+	 */
+	public void load(int[] givens) {
+		if (givens.length != candidates.length)
+			throw new IllegalArgumentException("Expected " + candidates.length + " cells, found " + givens.length);
+
+		queueSize = 0;
+		solvedCount = 0;
+		conflict = false;
+		placements = 0;
+		eliminations = 0;
+		rulesFired = 0;
+		for (int t = 0; t < techniqueUses.length; t++)
+			techniqueUses[t] = 0;
+		guesses = 0;
+		solutionCount = 0;
+		stamp++;
+		for (int u = 0; u < unitStamps.length; u++)
+			unitStamps[u] = stamp;
+		for (int i = 0; i < candidates.length; i++) {
+			int digit = givens[i];
+			if (digit < 0 || digit > unitSize)
+				throw new IllegalArgumentException("Invalid digit " + digit + " at cell " + i);
+			if (digit == 0)
+				candidates[i] = allDigits;
+			else {
+				candidates[i] = bit(digit); // a given removes no candidate, whatever the cell held before
+				place(i, candidates[i]);
+			}
+		}
+	}
+
+	/**
+	 * This method creates the candidates of each empty cell. For each cell that is
+	 * not solved, it removes from its candidates the digits of the solved cells in
+	 * its row, column and box. All the queued placements are handled by this scan,
+	 * so the queue only holds the cells solved by the penciling afterwards.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean penciling() {
+		SolverPhaseEvent event = new SolverPhaseEvent();
+		event.begin();
+		long start = System.nanoTime();
+		for (int u = 0; u < placed.length; u++)
+			placed[u] = 0;
+
+		for (int i = 0; i < candidates.length; i++) {
+			int mask = candidates[i];
+			if (isSingle(mask))
+				for (int u : cellUnits[i]) {
+					if ((placed[u] & mask) != 0)
+						conflict = true;
+					placed[u] |= mask;
+				}
+		}
+
+		queueSize = 0;
+		boolean changed = false;
+		for (int i = 0; i < candidates.length; i++)
+			if (!isSingle(candidates[i])) {
+				int[] units = cellUnits[i];
+				changed |= remove(i, placed[units[0]] | placed[units[1]] | placed[units[2]]);
+			}
+
+		pencilingMetrics.record(changed, System.nanoTime() - start);
+		event.finish("Penciling", changed);
+		return changed;
+	}
+
+	/**
+	 * This method implements the single candidate square rule. For each queued
+	 * placement, it removes the digit of the cell from the candidates of its
+	 * peers (row, column and box). Peers left with a single candidate are queued
+	 * in turn, so the method returns when the queue is empty.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean updateCandidates() {
+		boolean changed = false;
+
+		while (queueSize > 0) {
+			int cell = queue[--queueSize];
+			int digit = candidates[cell];
+			int[] cellPeers = peers[cell];
+			for (int k = 0; k < cellPeers.length; k++)
+				changed |= remove(cellPeers[k], digit);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * This method implements the single square candidate rule. For each row,
+	 * column and box, if a digit appears in the candidates of only one unsolved
+	 * cell, that cell is set to that digit.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean singleSquareCandidates() {
+		return singleSquareCandidates(-1);
+	}
+
+	/**
+	 * This method implements the single square candidate rule on the units
+	 * changed after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the units
+	 * @return true if any candidate has been removed
+	 */
+	public boolean singleSquareCandidates(long since) {
+		return singleSquareCandidates(since, 0, topology.units);
+	}
+
+	/**
+	 * This method implements the single square candidate rule on the units of a
+	 * range changed after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the units
+	 * @param from  first unit of the range
+	 * @param to    end of the range (exclusive)
+	 * @return true if any candidate has been removed
+	 */
+	boolean singleSquareCandidates(long since, int from, int to) {
+		boolean changed = false;
+
+		for (int u = from; u < to; u++) {
+			if (unitStamps[u] <= since)
+				continue;
+
+			int[] unit = unitCells[u];
+			int once = 0;   // digits seen in one cell of the unit
+			int twice = 0;  // digits seen in more than one cell of the unit
+			for (int k = 0; k < unit.length; k++) {
+				int mask = candidates[unit[k]];
+				twice |= once & mask;
+				once |= mask;
+			}
+			once &= ~twice;
+
+			for (int k = 0; k < unit.length; k++) {
+				int cell = unit[k];
+				int hidden = candidates[cell] & once;
+				if (!isSingle(candidates[cell]) && isSingle(hidden)) {
+					place(cell, hidden);
+					changed = true;
+				}
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * This method implements the subsets rule in every row, column and box.
+	 * Naked subset: if n unsolved cells (n = 2, 3 or 4) hold only n digits between
+	 * them, those digits are removed from the other cells of the unit.
+	 * Hidden subset: if n digits of a unit can only go in n cells, the other
+	 * digits are removed from those cells.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean subsets() {
+		return subsets(-1);
+	}
+
+	/**
+	 * This method implements the subsets rule on the units changed after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the units
+	 * @return true if any candidate has been removed
+	 */
+	public boolean subsets(long since) {
+		return subsets(since, 0, topology.units);
+	}
+
+	/**
+	 * This method implements the subsets rule on the units of a range changed
+	 * after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the units
+	 * @param from  first unit of the range
+	 * @param to    end of the range (exclusive)
+	 * @return true if any candidate has been removed
+	 */
+	boolean subsets(long since, int from, int to) {
+		boolean changed = false;
+
+		for (int u = from; u < to; u++) {
+			if (unitStamps[u] <= since)
+				continue;
+			changed |= nakedSubsets(unitCells[u]);
+			changed |= hiddenSubsets(unitCells[u]);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * This method searches the naked subsets of a unit, smallest first.
+	 *
+	 * @param unit cells of the unit
+	 * @return true if any candidate has been removed
+	 */
+	private boolean nakedSubsets(int[] unit) {
+		int n = 0;
+		for (int k = 0; k < unit.length; k++)
+			if (!isSingle(candidates[unit[k]]))
+				free[n++] = k;
+
+		for (int size = 2; size <= 4 && size < n; size++)
+			if (findNaked(unit, n, size, 0, 0, 0, 0))
+				return true;
+		return false;
+	}
+
+	/**
+	 * This method chooses the cells of a naked subset one by one, skipping the
+	 * cells that would take the union of their candidates over the subset size.
+	 *
+	 * @param unit   cells of the unit
+	 * @param n      number of unsolved cells in free
+	 * @param size   size of the subset
+	 * @param start  first position of free that can be chosen
+	 * @param depth  number of cells already chosen
+	 * @param union  candidates of the chosen cells
+	 * @param chosen positions in the unit of the chosen cells
+	 * @return true if a subset removed any candidate
+	 */
+	private boolean findNaked(int[] unit, int n, int size, int start, int depth, int union, int chosen) {
+		if (depth == size) {
+			if (Integer.bitCount(union) != size)
+				return false;
+
+			boolean changed = false;
+			for (int k = 0; k < unit.length; k++)
+				if ((chosen & (1 << k)) == 0 && !isSingle(candidates[unit[k]]))
+					changed |= remove(unit[k], union);
+			return changed;
+		}
+
+		for (int i = start; i < n; i++) {
+			int k = free[i];
+			int next = union | candidates[unit[k]];
+			if (Integer.bitCount(next) <= size && findNaked(unit, n, size, i + 1, depth + 1, next, chosen | (1 << k)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method searches the hidden subsets of a unit, smallest first. Digits
+	 * already placed in the unit are not part of any subset.
+	 *
+	 * @param unit cells of the unit
+	 * @return true if any candidate has been removed
+	 */
+	private boolean hiddenSubsets(int[] unit) {
+		int placedDigits = 0;
+		for (int d = 0; d < unitSize; d++)
+			positions[d] = 0;
+
+		for (int k = 0; k < unit.length; k++) {
+			int mask = candidates[unit[k]];
+			if (isSingle(mask)) {
+				placedDigits |= mask;
+				continue;
+			}
+			for (int m = mask; m != 0; m &= m - 1)
+				positions[Integer.numberOfTrailingZeros(m)] |= 1 << k;
+		}
+
+		int n = 0;
+		for (int d = 0; d < unitSize; d++)
+			if (positions[d] != 0 && (placedDigits & (1 << d)) == 0)
+				free[n++] = d;
+
+		for (int size = 2; size <= 4 && size < n; size++)
+			if (findHidden(unit, n, size, 0, 0, 0, 0))
+				return true;
+		return false;
+	}
+
+	/**
+	 * This method chooses the digits of a hidden subset one by one, skipping the
+	 * digits that would take the union of their cells over the subset size.
+	 *
+	 * @param unit   cells of the unit
+	 * @param n      number of digits in free
+	 * @param size   size of the subset
+	 * @param start  first position of free that can be chosen
+	 * @param depth  number of digits already chosen
+	 * @param cells  positions in the unit holding the chosen digits
+	 * @param digits mask of the chosen digits
+	 * @return true if a subset removed any candidate
+	 */
+	private boolean findHidden(int[] unit, int n, int size, int start, int depth, int cells, int digits) {
+		if (depth == size) {
+			if (Integer.bitCount(cells) != size)
+				return false;
+
+			boolean changed = false;
+			for (int m = cells; m != 0; m &= m - 1)
+				changed |= remove(unit[Integer.numberOfTrailingZeros(m)], allDigits & ~digits);
+			return changed;
+		}
+
+		for (int i = start; i < n; i++) {
+			int d = free[i];
+			int next = cells | positions[d];
+			if (Integer.bitCount(next) <= size && findHidden(unit, n, size, i + 1, depth + 1, next, digits | (1 << d)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method implements the number claiming rule on each of the
+	 * intersections between a box and a row or column, for all the digits at once.
+	 * Pointing: digits of the box found only in the intersection are removed from
+	 * the rest of the line.
+	 * Claiming: digits of the line found only in the intersection are removed from
+	 * the rest of the box.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean numberClaiming() {
+		return numberClaiming(-1);
+	}
+
+	/**
+	 * This method implements the number claiming rule on the intersections whose
+	 * box or line changed after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the intersections
+	 * @return true if any candidate has been removed
+	 */
+	public boolean numberClaiming(long since) {
+		return numberClaiming(since, 0, topology.intersections);
+	}
+
+	/**
+	 * This method implements the number claiming rule on the intersections of a
+	 * range whose box or line changed after a stamp.
+	 *
+	 * @param since stamp of the previous run, -1 for all the intersections
+	 * @param from  first intersection of the range
+	 * @param to    end of the range (exclusive)
+	 * @return true if any candidate has been removed
+	 */
+	boolean numberClaiming(long since, int from, int to) {
+		boolean changed = false;
+
+		for (int i = from; i < to; i++) {
+			if (unitStamps[topology.intersectionBox[i]] <= since
+					&& unitStamps[topology.intersectionLine[i]] <= since)
+				continue;
+
+			int shared = union(topology.shared[i]);
+			int[] boxRest = topology.boxRest[i];
+			int[] lineRest = topology.lineRest[i];
+			int pointing = shared & ~union(boxRest);
+			int claiming = shared & ~union(lineRest);
+
+			if (pointing != 0)
+				for (int cell : lineRest)
+					changed |= remove(cell, pointing);
+			if (claiming != 0)
+				for (int cell : boxRest)
+					changed |= remove(cell, claiming);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * This method returns the union of the candidates of some cells.
+	 *
+	 * @param cells indexes of the cells
+	 * @return mask of all the digits found in those cells
+	 */
+	private int union(int[] cells) {
+		int mask = 0;
+		for (int cell : cells)
+			mask |= candidates[cell];
+		return mask;
+	}
+
+	/**
+	 * This method implements the fish rule (X-Wing for 2 lines, Swordfish for 3 and
+	 * Jellyfish for 4) for each digit. It builds the position bitmaps of the
+	 * digit: the columns holding it in each row and the rows holding it in each
+	 * column. If the digit is confined to n columns in n rows (base lines), it is
+	 * removed from the other cells of those n columns (cover lines), and the same
+	 * with rows and columns swapped.
+	 *
+	 * @return true if any candidate has been removed
+	 */
+	public boolean fish() {
+		return fish(0, unitSize);
+	}
+
+	/**
+	 * This method implements the fish rule for the digits of a range.
+	 *
+	 * @param from first digit of the range (0 for the digit 1)
+	 * @param to   end of the range (exclusive)
+	 * @return true if any candidate has been removed
+	 */
+	boolean fish(int from, int to) {
+		boolean changed = false;
+
+		for (int d = from; d < to; d++) {
+			int digit = 1 << d;
+			int[] rows = linePositions[0];
+			int[] cols = linePositions[1];
+			for (int k = 0; k < unitSize; k++) {
+				rows[k] = 0;
+				cols[k] = 0;
+			}
+			for (int cell = 0; cell < candidates.length; cell++)
+				if ((candidates[cell] & digit) != 0) {
+					rows[topology.row[cell]] |= 1 << topology.col[cell];
+					cols[topology.col[cell]] |= 1 << topology.row[cell];
+				}
+
+			for (int size = 2; size <= 4; size++)
+				for (int base = 0; base < 2; base++)
+					changed |= findFish(digit, base, size, 0, 0, 0, 0);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * This method chooses the base lines of a fish one by one, skipping the lines
+	 * that would take the union of their positions over the fish size.
+	 *
+	 * @param digit  mask of the digit
+	 * @param base   0 if the base lines are rows, 1 if they are columns
+	 * @param size   number of base lines
+	 * @param start  first line that can be chosen
+	 * @param depth  number of lines already chosen
+	 * @param cover  union of the positions of the chosen lines (the cover lines)
+	 * @param chosen mask of the chosen lines
+	 * @return true if a fish removed any candidate
+	 */
+	private boolean findFish(int digit, int base, int size, int start, int depth, int cover, int chosen) {
+		if (depth == size) {
+			if (Integer.bitCount(cover) != size)
+				return false;
+
+			// remove the digit from the cover lines outside the base lines
+			boolean changed = false;
+			for (int m = cover; m != 0; m &= m - 1) {
+				int line = Integer.numberOfTrailingZeros(m);
+				int[] unit = unitCells[(1 - base) * unitSize + line];
+				for (int k = 0; k < unit.length; k++)
+					if ((chosen & (1 << k)) == 0)
+						changed |= remove(unit[k], digit);
+			}
+			return changed;
+		}
+
+		int[] positions = linePositions[base];
+		for (int line = start; line < unitSize; line++) {
+			int count = Integer.bitCount(positions[line]);
+			if (count < 2)
+				continue;
+			int next = cover | positions[line];
+			if (Integer.bitCount(next) <= size && findFish(digit, base, size, line + 1, depth + 1, next, chosen | (1 << line)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method checks if every cell of the puzzle has a single candidate.
+	 *
+	 * @return true if the puzzle is solved, false otherwise
+	 */
+	public boolean isSolved() {
+		return solvedCount == candidates.length;
+	}
+
+	/**
+	 * This method checks if a cell has no candidate left or if a solved cell has
+	 * the same digit as another solved cell in its row, column or box.
+	 *
+	 * @param cell index of the cell (row * size + col)
+	 * @return true if the cell is inconsistent, false otherwise
+	 */
+	public boolean inConsistency(int cell) {
+		int mask = candidates[cell];
+		if (mask == 0)
+			return true;
+		if (!isSingle(mask))
+			return false;
+
+		for (int peer : peers[cell])
+			if (candidates[peer] == mask)
+				return true;
+		return false;
+	}
+
+	/**
+	 * This method returns the candidate mask of a cell.
+	 *
+	 * @param cell index of the cell (row * size + col)
+	 * @return candidate mask, bit (d-1) set if d is a candidate
+	 */
+	public int getCandidates(int cell) {
+		return candidates[cell];
+	}
+
+	/**
+	 * This method returns the digit of a solved cell.
+	 *
+	 * @param cell index of the cell (row * size + col)
+	 * @return the digit of the cell, 0 if the cell is not solved
+	 */
+	public int getValue(int cell) {
+		int mask = candidates[cell];
+		return isSingle(mask) ? Integer.numberOfTrailingZeros(mask) + 1 : 0;
+	}
+
+	/**
+	 * This method copies the digits of the puzzle in an array of cells.
+	 * Cells that are not solved are copied as 0.
+	 *
+	 * @param out array of size x size cells to be filled
+	 */
+	public void getSolution(int[] out) {
+		for (int i = 0; i < candidates.length; i++)
+			out[i] = getValue(i);
+	}
+
+	/**
+	 * This method copies the candidates and the stamps of another engine of the
+	 * same size, leaving the queue of placements empty. It is used by the
+	 * ParallelPropagator to give each slice a snapshot of the puzzle.
+	 *
+	 * @param other engine to be copied
+	 */
+	void copyFrom(SudokuEngine other) {
+		System.arraycopy(other.candidates, 0, candidates, 0, candidates.length);
+		System.arraycopy(other.unitStamps, 0, unitStamps, 0, unitStamps.length);
+		stamp = other.stamp;
+		solvedCount = other.solvedCount;
+		conflict = other.conflict;
+		queueSize = 0;
+	}
+
+	/**
+	 * This method removes from each cell the candidates removed by another engine
+	 * working on a snapshot of this one. Cells left with a single candidate are
+	 * queued as placements, and a conflict found by the other engine makes the
+	 * puzzle inconsistent.
+	 *
+	 * @param other engine holding the result of a rule applied to the snapshot
+	 * @return true if any candidate has been removed
+	 */
+	boolean merge(SudokuEngine other) {
+		if (other.conflict)
+			conflict = true;
+
+		boolean changed = false;
+		for (int i = 0; i < candidates.length; i++)
+			if ((candidates[i] & ~other.candidates[i]) != 0)
+				changed |= remove(i, candidates[i] & ~other.candidates[i]);
+		return changed;
+	}
+
+	/**
+	 * This method counts a rule that removed candidates, in step() or in the
+	 * ParallelPropagator.
+	 *
+	 * @param technique rule that removed candidates
+	 */
+	void ruleFired(Technique technique) {
+		rulesFired++;
+		techniqueUses[technique.ordinal()]++;
+	}
+
+	/**
+	 * This method removes digits from the candidates of a cell. If the cell is
+	 * left with a single candidate, it is queued as a placement. A solved cell is
+	 * never emptied by this method: removing its digit marks the puzzle as
+	 * inconsistent instead.
+	 *
+	 * @param cell index of the cell
+	 * @param digits mask of the digits to remove
+	 * @return true if any candidate has been removed
+	 */
+	private boolean remove(int cell, int digits) {
+		int mask = candidates[cell];
+		if ((mask & digits) == 0)
+			return false;
+		if (isSingle(mask)) {
+			conflict = true;
+			return false;
+		}
+
+		eliminations += Integer.bitCount(mask & digits);
+		mask &= ~digits;
+		candidates[cell] = mask;
+		touch(cell);
+		if (mask == 0)
+			conflict = true;
+		else if (isSingle(mask))
+			place(cell, mask);
+		return true;
+	}
+
+	/**
+	 * This method sets a cell to a single digit and queues it as a placement.
+	 *
+	 * @param cell index of the cell
+	 * @param digit mask of the digit
+	 */
+	private void place(int cell, int digit) {
+		eliminations += Integer.bitCount(candidates[cell] & ~digit);
+		placements++;
+		candidates[cell] = digit;
+		solvedCount++;
+		queue[queueSize++] = cell;
+		touch(cell);
+	}
+
+	/**
+	 * This method increases the stamp of the engine and records it on the row,
+	 * column and box of a cell that changed.
+	 *
+	 * @param cell index of the cell
+	 */
+	private void touch(int cell) {
+		stamp++;
+		for (int u : cellUnits[cell])
+			unitStamps[u] = stamp;
+	}
+
+	static int bit(int digit) {
+		return 1 << (digit - 1);
+	}
+
+	static boolean isSingle(int mask) {
+		return mask != 0 && (mask & (mask - 1)) == 0;
+	}
+
+}
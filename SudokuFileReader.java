@@ -2,7 +2,6 @@ import java.awt.Color;
 import java.awt.List;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -12,7 +11,6 @@ import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileSystemView;
-import java.util.Iterator;
 
 /**
  * This class implements the file reader for the Sudoku Game.
@@ -27,6 +25,9 @@ import java.util.Iterator;
  * if the file is corrupted or having a bad format, it asks the user to input a
  * new file using the showMessageDialouge method.
  * 
+ * The static method readPuzzles() is used by the BatchSolver to read files
+ * containing many puzzles without the GUI.
+ * 
  * @author Zeyad Abdelwahab
  * @version 1.0
  *
@@ -36,8 +37,9 @@ public class SudokuFileReader implements Runnable {
 	private JFileChooser jfc; // fileChooser obj
 	private File selectedFile; // the file selected by the user
 	private ArrayList<ArrayList<String>> fileData; // 2D array of the numbers filled from the file
-	private Board board; // Board of the game (grid layout 9x9)
-	private JTextField[][] boardArray = new JTextField[9][9]; // actual JTextField array 9x9
+	private Board board; // Board of the game (grid layout size x size)
+	private JTextField[][] boardArray; // actual JTextField array size x size
+	private int size; // number of rows of the puzzle read from the file
 	private StatusConsole s; // status console
 	boolean result; // result after reading and parsing the file
 
@@ -49,7 +51,7 @@ public class SudokuFileReader implements Runnable {
 	 * 
 	 * @param fileData  2D arrayList<String> to be filled with numbers from the file
 	 *           
-	 * @param board Board of the sudoku game (gridlayout 9x9)
+	 * @param board Board of the sudoku game (gridlayout size x size)
 	 *            
 	 * @param s Status Console of the game
 	 *            
@@ -90,41 +92,33 @@ public class SudokuFileReader implements Runnable {
 
 				/*
 				 * if result=true, update the console with Ready and Loading(name of the file).
-				 * Iterate on the 2D arrayList filedata and remove character with '_' from each
-				 * cell and set the background color of the cells with single number.
+				 * Resize the board to the size of the puzzle, iterate on the 2D arrayList
+				 * filedata and remove character with '_' from each cell and set the background
+				 * color of the cells with single number.
 				 */
 				if (result) {
 					s.updateConsole("Ready"); // insert ready in the console
 					s.updateConsole("Loading:" + selectedFile.toString()); // insert name of file in console
 					s.getStatusConsole(); // show info in the console
 
+					board.resize(size);
+					boardArray = board.getboardArray();
+
 					// iterate on the fileData to remove '_' from the cells and update the
 					// boardArray
-					Iterator itr = fileData.iterator();
-					int k = 0;
-					for (int i = 0; i < fileData.size(); i++) {
-						for (int j = 0; j < fileData.get(i).size(); j++) {
-							StringBuilder temp = new StringBuilder(fileData.get(i).get(j));
-
-							for (int z = 0; z < 9; z++) {
-
-								String firstChar = Character.toString(temp.charAt(0));
-								if (!firstChar.equals("_"))
-									boardArray[k][z].setText(firstChar);
-
-								temp.delete(0, 1);
-							}
-
-							if (k < 9)
-								k++;
-
+					for (int k = 0; k < fileData.size(); k++) {
+						String row = fileData.get(k).get(0);
+						for (int z = 0; z < size; z++) {
+							String firstChar = Character.toString(row.charAt(z));
+							if (!firstChar.equals("_"))
+								boardArray[k][z].setText(firstChar);
 						}
 					}
 
 					// iterate on the boardArray to set the background color of cells with single
 					// number
-					for (int i = 0; i < 9; i++)
-						for (int j = 0; j < 9; j++)
+					for (int i = 0; i < size; i++)
+						for (int j = 0; j < size; j++)
 							if (!(boardArray[i][j].getText().equals("")))
 								board.setCellBackground(Color.YELLOW, i, j);
 
@@ -139,12 +133,13 @@ public class SudokuFileReader implements Runnable {
 	}
 
 	/**
-	 * This method reads and parses the selected file by the user. it ignores extra
-	 * lines if the file contains >9 lines. it ignores extra characters if line
-	 * contains >9. any character other than a decimal is treated as blank cell.
+	 * This method reads and parses the selected file by the user. It reads the
+	 * first puzzle of the file in any of the formats of readPuzzles() (9x9, 16x16
+	 * or 25x25 grids) and ignores the rest of the file. Each row of the puzzle is
+	 * added to the fileData as a string of symbols, '_' for the blank cells.
 	 * 
-	 * if any line has <9 chars, this method returns false (corrupted file). if the
-	 * file contains fewer than 9 lines, this method return false (corrupted file).
+	 * if the file has no puzzle or a bad format, this method returns false
+	 * (corrupted file).
 	 * 
 	 * @param selectedFile file to be parsed
 	 *            
@@ -152,88 +147,230 @@ public class SudokuFileReader implements Runnable {
 	 */
 	private boolean readFile(File selectedFile) {
 
-		BufferedReader br = null;
-
 		try {
 
-			br = new BufferedReader(new FileReader(selectedFile));
-			String line = ""; // line read from file
-			StringBuilder updatedLine; // line after modification (removing extra chars ..etc)
-			int lineCounter = 0; // counter to count number of lines in file
-			boolean[] decimalOrNot; // array with size 9 like the line to check if a char is decimal or not
+			ArrayList<int[]> puzzles = readPuzzles(selectedFile, 1);
+			if (puzzles.isEmpty())
+				return false;
 
-			// Iterates on the file and read lines one by one
-			while (((line = br.readLine()) != null) && (lineCounter < 9)) {
+			int[] puzzle = puzzles.get(0);
+			size = (int) Math.round(Math.sqrt(puzzle.length));
+			for (int i = 0; i < size; i++) {
+				StringBuilder row = new StringBuilder(); // row of symbols
+				for (int j = 0; j < size; j++) {
+					int digit = puzzle[i * size + j];
+					row.append(digit == 0 ? '_' : symbolOf(digit));
+				}
 
 				ArrayList<String> temp = new ArrayList<String>();
-				updatedLine = new StringBuilder(line); // line to be modified
-				decimalOrNot = new boolean[9]; // boolean array to check if a char is decimal or not
+				temp.add(row.toString());
+				fileData.add(temp);
+			}
 
-				// if a line has <9 chars, return false
-				if (updatedLine.length() < 9)
-					return false;
+		} catch (IOException e) {
+			System.out.println(e);
+			return false;
+		}
 
-				// if a line has >9 chars, delete the extra chars
-				if (updatedLine.length() > 9) {
-					updatedLine.delete(9, updatedLine.length());
-					updatedLine.replace(0, 9, line.substring(0, 9));
-				}
+		// return true after reading the file
+		return true;
 
-				/*
-				 * checks if each char is decimal or not in the line. if its not decimal update
-				 * the decimalOrNot array to true in the char specific position.
-				 */
-				for (int i = 0; i < updatedLine.length(); i++) {
-					if (updatedLine.charAt(i) != '_') {
-						try {
-							int j = Integer.parseInt(updatedLine.substring(i, i + 1));
+	}
 
-						} catch (NumberFormatException e) {
-							decimalOrNot[i] = true;
-						}
-					}
-				}
 
-				/*
-				 * iterate on the decimalOrNot and find un-decimal chars. After that update its
-				 * position in the line.
-				 */
-				for (int i = 0; i < decimalOrNot.length; i++) {
-					if (decimalOrNot[i] == true) {
-						updatedLine.setCharAt(i, '_');
+	/**
+	 * This method reads all the puzzles of a file for the batch mode. The
+	 * following formats are accepted and can be mixed in the same file:
+	 * - one puzzle per line: a line of at least 81 chars holds the 81 cells in row
+	 *   order (256 or 625 chars for the 16x16 and 25x25 grids).
+	 * - one row per line: 9 consecutive lines of at least 9 chars, or 16 lines of
+	 *   16 chars or 25 lines of 25 chars for the larger grids. The length of the
+	 *   first row gives the size of the grid, and a later row of another grid
+	 *   size is an error rather than a row cut to the size of the first one.
+	 * - the token format, for symbols of several chars: the cells are separated by
+	 *   spaces or tabs, either size lines of size cells or one line of size x size
+	 *   cells, for a size of 9, 16 or 25.
+	 * In the char formats, digits 1-9 and then letters A-P are the symbols 1 to 25,
+	 * any other character ('_', '.', '0'...) or a symbol too large for the grid is
+	 * a blank cell, and extra characters are ignored. In the token format a cell is
+	 * a number, a single letter, or '.', '_' or '0' for a blank cell.
+	 * Empty lines and lines starting with '#' between puzzles are skipped.
+	 * 
+	 * @param file file to be parsed
+	 * @return list of puzzles, each one an array of size x size digits (0 for blank cells)
+	 * @throws IOException if the file cannot be read or a line has a bad format
+	 */
+	static ArrayList<int[]> readPuzzles(File file) throws IOException {
+		return readPuzzles(file, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * This method reads the first puzzles of a file in any of the formats accepted
+	 * by readPuzzles(File). The rest of the file is not read.
+	 * 
+	 * @param file  file to be parsed
+	 * @param limit maximum number of puzzles to read
+	 * @return list of puzzles, each one an array of size x size digits (0 for blank cells)
+	 * @throws IOException if the file cannot be read or a line has a bad format
+	 */
+	static ArrayList<int[]> readPuzzles(File file, int limit) throws IOException {
+		ArrayList<int[]> puzzles = new ArrayList<int[]>();
+
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineCounter = 0;   // number of lines read
+			int[] puzzle = null;   // puzzle being read one row per line
+			int size = 0;          // number of rows of that puzzle
+			boolean tokens = false; // true if its rows are in the token format
+			int rows = 0;          // rows of that puzzle already read
+
+			while (puzzles.size() < limit && (line = br.readLine()) != null) {
+				lineCounter++;
+				line = line.trim();
+
+				if (rows == 0 && (line.isEmpty() || line.startsWith("#")))
+					continue;
+
+				String[] cells = (line.indexOf(' ') < 0 && line.indexOf('\t') < 0) ? new String[] { line }
+						: line.split("\\s+"); // no regex for the lines of a single token
+				if (rows == 0) {
+					boolean row = isGridSize(cells.length);                     // size cells
+					boolean grid = cells.length > 1 && isGridCells(cells.length); // size x size cells
+					tokens = row || grid;
+
+					// one puzzle per line
+					if (tokens && !row) {
+						puzzles.add(parseTokens(cells, new int[cells.length], 0, lineCounter));
+						continue;
+					}
+					if (!tokens && line.length() >= 81) {
+						int count = line.length() >= 625 ? 625 : line.length() >= 256 ? 256 : 81;
+						puzzle = new int[count];
+						parseCells(line, puzzle, 0, count);
+						puzzles.add(puzzle);
+						continue;
 					}
 
+					size = tokens ? cells.length : isGridSize(line.length()) ? line.length() : 9;
+					puzzle = new int[size * size];
 				}
 
-				// add the line to the array and increase the line counter
-				temp.add(updatedLine.toString());
-				fileData.add(temp);
-				lineCounter++;
-
+				// one row of a puzzle
+				if (tokens) {
+					if (cells.length != size)
+						throw new IOException("Line " + lineCounter + ": expected " + size + " cells, found " + cells.length);
+					parseTokens(cells, puzzle, rows * size, lineCounter);
+				} else {
+					if (line.length() < size || (line.length() != size && isGridSize(line.length())))
+						throw new IOException("Line " + lineCounter + ": expected " + ((size == 9) ? "9 or 81" : size)
+								+ " cells, found " + line.length());
+					parseCells(line, puzzle, rows * size, size);
+				}
+				if (++rows == size) {
+					puzzles.add(puzzle);
+					rows = 0;
+				}
 			}
 
-			// if line counter less than 9, return false (corrupted file)
-			if (lineCounter < 8)
-				return false;
+			if (rows != 0)
+				throw new IOException("Line " + lineCounter + ": puzzle has only " + rows + " rows");
+		}
 
-		} catch (FileNotFoundException e) {
-			System.out.println(e);
+		return puzzles;
+	}
 
-		} catch (IOException e) {
-			System.out.println(e);
-		} finally {
-			try {
-				if (br != null)
-					br.close();
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+	/**
+	 * This method converts the characters of a line into digits.
+	 * Symbols of the grid are kept, any other character is converted to 0 (blank cell).
+	 * 
+	 * @param line   line read from the file
+	 * @param cells  array of cells to be filled
+	 * @param offset first cell to fill
+	 * @param count  number of characters to convert
+	 */
+	static void parseCells(String line, int[] cells, int offset, int count) {
+		int size = (int) Math.round(Math.sqrt(cells.length));
+		for (int i = 0; i < count; i++) {
+			int digit = digitOf(line.charAt(i));
+			cells[offset + i] = (digit <= size) ? digit : 0;
 		}
+	}
 
-		// return true after reading the file
-		return true;
+	/**
+	 * This method converts the tokens of a line into digits.
+	 * 
+	 * @param tokens     cells of the line, one symbol each
+	 * @param cells      array of cells to be filled
+	 * @param offset     first cell to fill
+	 * @param lineNumber line of the file, for the error messages
+	 * @return the array of cells
+	 * @throws IOException if a token is not a symbol of the grid
+	 */
+	static int[] parseTokens(String[] tokens, int[] cells, int offset, int lineNumber) throws IOException {
+		int size = (int) Math.round(Math.sqrt(cells.length));
+		for (int i = 0; i < tokens.length; i++) {
+			String token = tokens[i];
+			int digit;
+			if (token.equals(".") || token.equals("_") || token.equals("0"))
+				digit = 0;
+			else if (token.matches("[0-9]{1,2}"))
+				digit = Integer.parseInt(token);
+			else if (token.length() == 1 && Character.isLetter(token.charAt(0)))
+				digit = digitOf(token.charAt(0));
+			else
+				digit = -1;
+
+			if (digit < 0 || digit > size)
+				throw new IOException("Line " + lineNumber + ": invalid cell '" + token + "' for a " + size + "x" + size + " grid");
+			cells[offset + i] = digit;
+		}
+		return cells;
+	}
+
+	/**
+	 * This method returns the digit of a symbol: 1-9 for '1'-'9' and 10-25 for the
+	 * letters 'A'-'P' (or 'a'-'p').
+	 * 
+	 * @param c symbol read from a file or a cell of the Board
+	 * @return the digit, 0 if c is not a symbol
+	 */
+	static int digitOf(char c) {
+		if (c >= '1' && c <= '9')
+			return c - '0';
+		if (c >= 'A' && c <= 'P')
+			return c - 'A' + 10;
+		if (c >= 'a' && c <= 'p')
+			return c - 'a' + 10;
+		return 0;
+	}
 
+	/**
+	 * This method returns the symbol of a digit, the reverse of digitOf().
+	 * 
+	 * @param digit digit from 1 to 25
+	 * @return '1'-'9' for 1-9 and 'A'-'P' for 10-25
+	 */
+	static char symbolOf(int digit) {
+		return (digit <= 9) ? (char) ('0' + digit) : (char) ('A' + digit - 10);
+	}
+
+	/**
+	 * This method checks if a number of rows is the size of a grid read from a
+	 * file, from 9x9 to 25x25. The 4x4 grid is left out: a line of 16 cells would
+	 * be both a 4x4 puzzle and a row of a 16x16 puzzle.
+	 */
+	private static boolean isGridSize(int size) {
+		int box = (int) Math.round(Math.sqrt(size));
+		return box * box == size && box >= 3 && box <= SudokuTopology.MAX_BOX;
+	}
+
+	/**
+	 * This method checks if a number of cells is the size of a grid read from a
+	 * file, from 9x9 to 25x25.
+	 */
+	private static boolean isGridCells(int cells) {
+		int size = (int) Math.round(Math.sqrt(cells));
+		return size * size == cells && isGridSize(size);
 	}
 
 }
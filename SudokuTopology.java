@@ -0,0 +1,172 @@
+/**
+ * This class implements the precomputed layout of a Sudoku grid shared by all
+ * the rules and search engines.
+ *
+ * A grid is made of boxes of box x box cells, so it has size = box * box rows,
+ * columns, boxes and digits: 9x9 for the standard game, 16x16 and 25x25 for
+ * the larger ones. Cells are numbered in row order (row * size + col). The
+ * 3 * size units are numbered as follows: 0 to size-1 are the rows, then the
+ * columns and then the boxes. Every table is a primitive array computed once
+ * per box size, so the rules iterate over plain int arrays instead of box index
+ * lists or directional while loops, and every rule applies the same way to
+ * rows, columns and boxes.
+ *
+ * The intersections between a box and a row or column crossing it are also
+ * precomputed: the box shared cells, the size - box other cells of the box and
+ * the size - box other cells of the line.
+ *
+ * The candidates of a cell are held in an int, one bit per digit, so the
+ * largest grid is 25x25 (MAX_BOX = 5).
+ *
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public final class SudokuTopology {
+
+	static final int MIN_BOX = 2; // smallest box size (4x4 grid)
+	static final int MAX_BOX = 5; // largest box size (25x25 grid, 25 bits per candidate mask)
+
+	private static final SudokuTopology[] TOPOLOGIES = new SudokuTopology[MAX_BOX + 1]; // built on first use
+
+	static final SudokuTopology STANDARD = of(3); // the 9x9 grid
+
+	final int box;           // number of rows and columns in a box
+	final int size;          // number of rows, columns, boxes and digits
+	final int cells;         // number of cells
+	final int units;         // number of units (rows, columns and boxes)
+	final int peers;         // cells sharing a unit with a cell (20 for 9x9)
+
+	final int[] row;         // row of each cell
+	final int[] col;         // column of each cell
+	final int[] boxOf;       // box of each cell
+	final int[][] unit;      // cells of each unit
+	final int[][] unitsOf;   // row, column and box unit of each cell
+	final int[][] peer;      // peers of each cell
+
+	final int intersections;      // box/line intersections (54 for 9x9)
+	final int[][] shared;         // cells in both the box and the line
+	final int[][] boxRest;        // cells of the box outside the line
+	final int[][] lineRest;       // cells of the line outside the box
+	final int[] intersectionBox;  // box unit of each intersection
+	final int[] intersectionLine; // row or column unit of each intersection
+
+	private SudokuTopology(int box) {
+		this.box = box;
+		this.size = box * box;
+		this.cells = size * size;
+		this.units = 3 * size;
+		this.peers = 3 * size - 2 * box - 1;
+
+		row = new int[cells];
+		col = new int[cells];
+		boxOf = new int[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			row[cell] = cell / size;
+			col[cell] = cell % size;
+			boxOf[cell] = (row[cell] / box) * box + col[cell] / box;
+		}
+
+		unit = new int[units][size];
+		unitsOf = new int[cells][3];
+		int[] filled = new int[units];
+		for (int cell = 0; cell < cells; cell++) {
+			unitsOf[cell][0] = row[cell];
+			unitsOf[cell][1] = size + col[cell];
+			unitsOf[cell][2] = 2 * size + boxOf[cell];
+			for (int u : unitsOf[cell])
+				unit[u][filled[u]++] = cell;
+		}
+
+		peer = new int[cells][peers];
+		for (int cell = 0; cell < cells; cell++) {
+			int n = 0;
+			for (int other = 0; other < cells; other++)
+				if (other != cell && (row[other] == row[cell] || col[other] == col[cell]
+						|| boxOf[other] == boxOf[cell]))
+					peer[cell][n++] = other;
+		}
+
+		intersections = 2 * size * box;
+		shared = new int[intersections][box];
+		boxRest = new int[intersections][size - box];
+		lineRest = new int[intersections][size - box];
+		intersectionBox = new int[intersections];
+		intersectionLine = new int[intersections];
+
+		int i = 0;
+		for (int b = 2 * size; b < units; b++)
+			for (int line = 0; line < 2 * size; line++) {
+				int count = 0;
+				for (int cell : unit[b])
+					if (unitsOf[cell][0] == line || unitsOf[cell][1] == line)
+						count++;
+				if (count == 0)
+					continue;
+
+				intersectionBox[i] = b;
+				intersectionLine[i] = line;
+				int s = 0, br = 0, lr = 0;
+				for (int cell : unit[b])
+					if (unitsOf[cell][0] == line || unitsOf[cell][1] == line)
+						shared[i][s++] = cell;
+					else
+						boxRest[i][br++] = cell;
+				for (int cell : unit[line])
+					if (boxOf[cell] != b - 2 * size)
+						lineRest[i][lr++] = cell;
+				i++;
+			}
+	}
+
+	/**
+	 * This method returns the topology of the grids made of box x box boxes.
+	 *
+	 * @param box number of rows and columns in a box, from MIN_BOX to MAX_BOX
+	 * @return topology shared by all the grids of that size
+	 */
+	static synchronized SudokuTopology of(int box) {
+		if (box < MIN_BOX || box > MAX_BOX)
+			throw new IllegalArgumentException("Box size must be between " + MIN_BOX + " and " + MAX_BOX + ": " + box);
+
+		if (TOPOLOGIES[box] == null)
+			TOPOLOGIES[box] = new SudokuTopology(box);
+		return TOPOLOGIES[box];
+	}
+
+	/**
+	 * This method returns the topology of a grid of size x size cells.
+	 *
+	 * @param size number of rows of the grid (4, 9, 16 or 25)
+	 * @return topology of the grid
+	 */
+	static SudokuTopology ofSize(int size) {
+		int box = (int) Math.round(Math.sqrt(size));
+		if (box * box != size)
+			throw new IllegalArgumentException("Grid size must be a square: " + size);
+		return of(box);
+	}
+
+	/**
+	 * This method returns the topology of a grid from its number of cells.
+	 *
+	 * @param cells number of cells of the grid (16, 81, 256 or 625)
+	 * @return topology of the grid
+	 */
+	static SudokuTopology ofCells(int cells) {
+		int size = (int) Math.round(Math.sqrt(cells));
+		if (size * size != cells)
+			throw new IllegalArgumentException("Number of cells must be a square: " + cells);
+		return ofSize(size);
+	}
+
+	/**
+	 * This method checks if a unit is a box.
+	 *
+	 * @param unit index of the unit
+	 * @return true if the unit is a box, false if it is a row or a column
+	 */
+	boolean isBox(int unit) {
+		return unit >= 2 * size;
+	}
+
+}
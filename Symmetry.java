@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+/**
+ * This enum implements the symmetries kept by the PuzzleGenerator when it
+ * removes clues. Each symmetry maps a cell to its image, and the cells are
+ * removed by orbits (a cell and all its images), so the givens of the puzzle
+ * keep the symmetry.
+ * 
+ * NONE: every cell is removed on its own.
+ * ROTATIONAL: 180 degree rotation around the center of the grid.
+ * QUARTER: 90 degree rotation around the center of the grid.
+ * MIRROR: reflection across the vertical axis.
+ * DIAGONAL: reflection across the main diagonal.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public enum Symmetry {
+
+	NONE {
+		@Override
+		int image(int row, int col, int size) {
+			return row * size + col;
+		}
+	},
+	ROTATIONAL {
+		@Override
+		int image(int row, int col, int size) {
+			return (size - 1 - row) * size + (size - 1 - col);
+		}
+	},
+	QUARTER {
+		@Override
+		int image(int row, int col, int size) {
+			return col * size + (size - 1 - row);
+		}
+	},
+	MIRROR {
+		@Override
+		int image(int row, int col, int size) {
+			return row * size + (size - 1 - col);
+		}
+	},
+	DIAGONAL {
+		@Override
+		int image(int row, int col, int size) {
+			return col * size + row;
+		}
+	};
+
+	/**
+	 * This method returns the image of a cell by the symmetry.
+	 *
+	 * @param row  row of the cell
+	 * @param col  column of the cell
+	 * @param size number of rows of the grid
+	 * @return index of the image cell
+	 */
+	abstract int image(int row, int col, int size);
+
+	/**
+	 * This method splits the cells of a grid in orbits. Each orbit holds a cell and
+	 * all its images, so it has 1 to 4 cells.
+	 *
+	 * @param topology layout of the grid
+	 * @return cells of each orbit
+	 */
+	int[][] orbits(SudokuTopology topology) {
+		int[][] orbits = new int[topology.cells][];
+		boolean[] seen = new boolean[topology.cells];
+		int[] orbit = new int[4];
+		int count = 0;
+		for (int cell = 0; cell < topology.cells; cell++) {
+			if (seen[cell])
+				continue;
+
+			int n = 0;
+			for (int c = cell; !seen[c]; c = image(topology.row[c], topology.col[c], topology.size)) {
+				seen[c] = true;
+				orbit[n++] = c;
+			}
+			orbits[count++] = Arrays.copyOf(orbit, n);
+		}
+		return Arrays.copyOf(orbits, count);
+	}
+
+	/**
+	 * This method returns the symmetry with a given name, ignoring the case.
+	 *
+	 * @param name name of the symmetry (none, rotational, quarter, mirror or diagonal)
+	 * @return the symmetry
+	 */
+	static Symmetry forName(String name) {
+		for (Symmetry symmetry : values())
+			if (symmetry.name().equalsIgnoreCase(name))
+				return symmetry;
+		throw new IllegalArgumentException("Unknown symmetry: " + name);
+	}
+
+}
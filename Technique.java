@@ -0,0 +1,132 @@
+/**
+ * This enum implements the rules of the SudokuEngine as SolverRules, from the
+ * cheapest to the most expensive.
+ * 
+ * SINGLES: Single Candidate Square, removes the placed digits from their peers.
+ * HIDDEN_SINGLES: Single Square Candidate in rows, columns and boxes.
+ * NUMBER_CLAIMING: pointing and box/line reduction.
+ * SUBSETS: naked and hidden pairs, triples and quads.
+ * FISH: X-Wing, Swordfish and Jellyfish.
+ * 
+ * Each rule but SINGLES is sliceable: it also has a SliceableRule applying it
+ * to one slice of the grid (a range of units, intersections or digits), so the
+ * ParallelPropagator runs the same rule implementations on several threads.
+ * SINGLES follows the queue of placements, which is not split, and has none.
+ * Each rule also has the Difficulty of the puzzles that need it.
+ * 
+ * @author Zeyad Abdelwahab
+ * @version 1.0
+ */
+public enum Technique implements SolverRule {
+
+	SINGLES("Single Candidate Square", 1, Difficulty.EASY, null) {
+		@Override
+		public boolean apply(SudokuEngine engine, long since) {
+			return engine.updateCandidates();
+		}
+	},
+
+	HIDDEN_SINGLES("Single Square Candidate", 2, Difficulty.MEDIUM, (engine, since, slice, slices) -> {
+		int units = engine.getTopology().units;
+		return engine.singleSquareCandidates(since, bound(units, slice, slices), bound(units, slice + 1, slices));
+	}) {
+		@Override
+		public boolean apply(SudokuEngine engine, long since) {
+			return engine.singleSquareCandidates(since);
+		}
+	},
+
+	NUMBER_CLAIMING("Number Claiming", 3, Difficulty.HARD, (engine, since, slice, slices) -> {
+		int intersections = engine.getTopology().intersections;
+		return engine.numberClaiming(since, bound(intersections, slice, slices),
+				bound(intersections, slice + 1, slices));
+	}) {
+		@Override
+		public boolean apply(SudokuEngine engine, long since) {
+			return engine.numberClaiming(since);
+		}
+	},
+
+	SUBSETS("Subsets", 5, Difficulty.HARD, (engine, since, slice, slices) -> {
+		int units = engine.getTopology().units;
+		return engine.subsets(since, bound(units, slice, slices), bound(units, slice + 1, slices));
+	}) {
+		@Override
+		public boolean apply(SudokuEngine engine, long since) {
+			return engine.subsets(since);
+		}
+	},
+
+	FISH("Fish", 8, Difficulty.EXPERT, (engine, since, slice, slices) -> {
+		int digits = engine.getTopology().size;
+		return engine.fish(bound(digits, slice, slices), bound(digits, slice + 1, slices));
+	}) {
+		@Override
+		public boolean apply(SudokuEngine engine, long since) {
+			return engine.fish();
+		}
+	};
+
+	private final String name;           // name shown to the user
+	private final int cost;              // relative cost of one run
+	private final Difficulty difficulty; // tier of the puzzles needing the rule
+	private final SliceableRule slicing; // rule applied to one slice, null if not sliceable
+
+	private Technique(String name, int cost, Difficulty difficulty, SliceableRule slicing) {
+		this.name = name;
+		this.cost = cost;
+		this.difficulty = difficulty;
+		this.slicing = slicing;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int getCost() {
+		return cost;
+	}
+
+	/**
+	 * This method returns the tier of the puzzles that need the rule, used by the
+	 * DifficultyRating.
+	 * 
+	 * @return difficulty of the rule
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	/**
+	 * This method tells whether the rule can be applied to slices of the grid by
+	 * the ParallelPropagator.
+	 * 
+	 * @return true if the rule has a SliceableRule
+	 */
+	public boolean isSliceable() {
+		return slicing != null;
+	}
+
+	/**
+	 * This method returns the rule applied to one slice of the grid.
+	 * 
+	 * @return rule applied to one slice
+	 * @throws IllegalStateException if the rule is not sliceable
+	 */
+	SliceableRule getSlicing() {
+		if (slicing == null)
+			throw new IllegalStateException(name + " is not sliceable");
+		return slicing;
+	}
+
+	/**
+	 * This method returns the first item of a slice when n items are split in
+	 * slices of nearly equal size.
+	 */
+	private static int bound(int n, int slice, int slices) {
+		return n * slice / slices;
+	}
+
+}